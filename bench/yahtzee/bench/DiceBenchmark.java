@@ -0,0 +1,81 @@
+package yahtzee.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yahtzee.YahtzeeBulkDice;
+import yahtzee.YahtzeeDiceSource;
+import yahtzee.YahtzeeSplittableDice;
+import yahtzee.YahtzeeThreadLocalDice;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiceBenchmark {
+    @Param({"math", "splittable", "threadlocal", "bulk"})
+    public String source;
+    
+    private final int[] roll = new int[5];
+    private YahtzeeDiceSource dice;
+    
+    
+    
+    @Setup
+    public void setup() {
+        switch (source) {
+            case "math":
+                dice = () -> (int)(Math.random() * 6) + 1;
+                break;
+            case "splittable":
+                dice = new YahtzeeSplittableDice(42);
+                break;
+            case "threadlocal":
+                dice = YahtzeeThreadLocalDice.INSTANCE;
+                break;
+            default:
+                dice = new YahtzeeBulkDice(42);
+        }
+    }
+    
+    
+    
+    /**
+     * Roll all five dice on one thread
+     * 
+     * @return Roll, so the work is not eliminated
+     */
+    @Benchmark
+    public int[] rollAll() {
+        dice.roll(roll, 0);
+        return roll;
+    }
+    
+    
+    
+    /**
+     * Roll all five dice on four threads at once, where a shared generator contends
+     * 
+     * @return Roll, so the work is not eliminated
+     */
+    @Benchmark
+    @Threads(4)
+    public int[] rollAllContended() {
+        dice.roll(roll, 0);
+        return roll;
+    }
+}
@@ -0,0 +1,80 @@
+package yahtzee.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yahtzee.YahtzeeScorecard;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final int[] roll = new int[5];
+    private final int[] scores = new int[13];
+    private final int[] counts = new int[7];
+    
+    
+    
+    /**
+     * Play a full 13-turn game, keeping the most common face on each reroll and taking the
+     * best open category
+     * 
+     * @return Final score
+     */
+    @Benchmark
+    public int greedyGame() {
+        YahtzeeScorecard scorecard = new YahtzeeScorecard();
+        int used = 0;
+        
+        for (int turn = 0; turn < 13; turn++) {
+            int keep = 0;
+            
+            for (int rerolls = 2; rerolls >= 0; rerolls--) {
+                for (int i = 0; i < roll.length; i++)
+                    if (roll[i] != keep)
+                        roll[i] = random.nextInt(6) + 1;
+                
+                // Keep the most common face
+                java.util.Arrays.fill(counts, 0);
+                
+                for (int i : roll)
+                    counts[i]++;
+                
+                for (int face = 1; face <= 6; face++)
+                    if (counts[face] >= counts[keep])
+                        keep = face;
+            }
+            
+            // Score in the best open category
+            int eligibility = scorecard.getPotentialCategoryScores(roll, scores);
+            int best = -1;
+            
+            for (int category = 0; category < 13; category++)
+                if ((used & (1 << category)) == 0 && (eligibility & (1 << category)) != 0
+                        && (best == -1 || scores[category] > scores[best]))
+                    best = category;
+            
+            if (best == -1)
+                best = Integer.numberOfTrailingZeros(~used);
+            
+            scorecard.scoreInCategory(best, roll);
+            used |= 1 << best;
+        }
+        
+        return scorecard.getTotalScore();
+    }
+}
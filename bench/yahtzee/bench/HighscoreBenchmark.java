@@ -0,0 +1,124 @@
+package yahtzee.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yahtzee.YahtzeeHighscoreJournal;
+import yahtzee.YahtzeeHighscoreStore;
+import yahtzee.YahtzeeHighscores;
+import yahtzee.YahtzeeScore;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HighscoreBenchmark {
+    /** Number of highscore entries in the file */
+    @Param({ "8", "10000" })
+    public int entries;
+    
+    private final List<YahtzeeScore> scores = new ArrayList<>();
+    private File file, journalFile, storeFile;
+    private YahtzeeHighscoreJournal journal;
+    
+    
+    
+    /**
+     * Write a highscore file of the requested size
+     */
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("highscores", ".dat");
+        
+        for (int i = 0; i < entries; i++)
+            scores.add(new YahtzeeScore("Player" + i, 100 + i % 300));
+        
+        YahtzeeHighscores.save(file, scores);
+        
+        journalFile = File.createTempFile("journal", ".dat");
+        journalFile.delete();
+        journal = YahtzeeHighscoreJournal.open(journalFile, new ArrayList<YahtzeeScore>());
+        journal.compact(scores);
+        
+        storeFile = File.createTempFile("highscores", ".idx");
+        YahtzeeHighscoreStore.write(storeFile, 1, scores);
+    }
+    
+    
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        file.delete();
+        journalFile.delete();
+        storeFile.delete();
+    }
+    
+    
+    
+    @Benchmark
+    public List<YahtzeeScore> load() throws IOException {
+        List<YahtzeeScore> loaded = new ArrayList<>(entries);
+        YahtzeeHighscores.load(file, loaded);
+        
+        return loaded;
+    }
+    
+    
+    
+    @Benchmark
+    public File save() throws IOException {
+        YahtzeeHighscores.save(file, scores);
+        return file;
+    }
+    
+    
+    
+    @Benchmark
+    public List<YahtzeeScore> replayJournal() throws IOException {
+        List<YahtzeeScore> loaded = new ArrayList<>(entries);
+        YahtzeeHighscoreJournal.open(journalFile, loaded).close();
+        
+        return loaded;
+    }
+    
+    
+    
+    /**
+     * One game's save; the journal grows by a record per invocation
+     */
+    @Benchmark
+    public YahtzeeHighscoreJournal appendJournal() throws IOException {
+        journal.append(scores.get(0));
+        return journal;
+    }
+    
+    
+    
+    /**
+     * Startup with a snapshot: map it and read the board's entries
+     */
+    @Benchmark
+    public List<YahtzeeScore> snapshotTop() throws IOException {
+        return YahtzeeHighscoreStore.load(storeFile, false).getTop(8);
+    }
+}
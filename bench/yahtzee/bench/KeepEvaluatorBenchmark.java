@@ -0,0 +1,56 @@
+package yahtzee.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yahtzee.YahtzeeKeepEvaluator;
+import yahtzee.YahtzeeSolver;
+import yahtzee.YahtzeeStrategyFile;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeepEvaluatorBenchmark {
+    @Param({"1", "2"})
+    public int rerolls;
+    
+    private final int[] roll = { 2, 2, 5, 6, 1 };
+    private final double[] keepValues = new double[32];
+    private final int state = YahtzeeSolver.state(0, 0, false);
+    private YahtzeeKeepEvaluator evaluator;
+    
+    
+    
+    @Setup
+    public void setup() throws IOException {
+        evaluator = new YahtzeeKeepEvaluator(YahtzeeStrategyFile.loadOrBuild(new File(YahtzeeStrategyFile.DEFAULT_FILE_NAME)));
+    }
+    
+    
+    
+    /**
+     * Value all 32 keep masks of a first-turn roll
+     * 
+     * @return Best mask
+     */
+    @Benchmark
+    public int evaluateKeeps() {
+        return evaluator.evaluate(state, roll, rerolls, keepValues);
+    }
+}
@@ -0,0 +1,93 @@
+package yahtzee.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yahtzee.YahtzeeGame;
+import yahtzee.YahtzeeGreedyPlayer;
+import yahtzee.YahtzeeReplayReader;
+import yahtzee.YahtzeeReplayWriter;
+import yahtzee.YahtzeeSplittableDice;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+    /** Number of games in the log */
+    @Param({ "100000" })
+    public int games;
+    
+    private File file;
+    
+    
+    
+    /**
+     * Record greedy games into a log of the requested size
+     */
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("replays", ".dat");
+        file.delete();
+        
+        YahtzeeSplittableDice dice = new YahtzeeSplittableDice(42);
+        YahtzeeGame game = new YahtzeeGame(dice);
+        YahtzeeGreedyPlayer player = new YahtzeeGreedyPlayer();
+        
+        try (YahtzeeReplayWriter writer = new YahtzeeReplayWriter(file)) {
+            game.addListener(writer);
+            
+            for (int i = 0; i < games; i++) {
+                dice.setSeed(i);
+                writer.setSeed(i);
+                game.reset();
+                
+                while (!game.isOver())
+                    game.play(player.chooseMove(game));
+            }
+        }
+    }
+    
+    
+    
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+    
+    
+    
+    /**
+     * Rebuild every game's final scorecard
+     * 
+     * @return Sum of the final scores
+     */
+    @Benchmark
+    public long replayAll() throws IOException {
+        long total = 0;
+        
+        try (YahtzeeReplayReader reader = new YahtzeeReplayReader(file)) {
+            while (reader.next())
+                total += reader.replay().getScorecard().getTotalScore();
+        }
+        
+        return total;
+    }
+}
@@ -0,0 +1,126 @@
+package yahtzee.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yahtzee.YahtzeeScorecard;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScorecardBenchmark {
+    private static final int ROLLS = 1024;
+    
+    /**
+     * random: uniform five-die rolls; adversarial: unsorted straights, full houses and
+     * Yahtzees that take the longest scoring paths
+     */
+    @Param({ "random", "adversarial" })
+    public String rolls;
+    
+    private final int[][] table = new int[ROLLS][];
+    private final int[] scores = new int[13];
+    private YahtzeeScorecard scorecard, filled;
+    private int next;
+    
+    
+    
+    /**
+     * Build the roll table and a fully scored card
+     */
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        int[][] hard = {
+            { 5, 3, 4, 2, 1 }, { 6, 2, 4, 3, 5 }, { 4, 1, 3, 2, 6 }, { 2, 5, 2, 5, 2 },
+            { 6, 6, 1, 6, 1 }, { 3, 3, 3, 3, 3 }, { 1, 6, 6, 6, 6 }, { 4, 6, 5, 3, 4 }
+        };
+        
+        for (int i = 0; i < ROLLS; i++)
+            if (rolls.equals("random")) {
+                table[i] = new int[5];
+                
+                for (int j = 0; j < 5; j++)
+                    table[i][j] = random.nextInt(6) + 1;
+            }
+            else
+                table[i] = hard[random.nextInt(hard.length)];
+        
+        scorecard = new YahtzeeScorecard();
+        filled = new YahtzeeScorecard();
+        
+        for (int category = 0; category < 13; category++)
+            filled.scoreInCategory(category, table[category]);
+    }
+    
+    
+    
+    private int[] nextRoll() { return table[next++ & (ROLLS - 1)]; }
+    
+    
+    
+    @Benchmark
+    public int eligibleForCategory() {
+        int[] roll = nextRoll();
+        int eligible = 0;
+        
+        for (int category = 0; category < 13; category++)
+            if (YahtzeeScorecard.eligibleForCategory(category, roll))
+                eligible++;
+        
+        return eligible;
+    }
+    
+    
+    
+    @Benchmark
+    public int getPotentialCategoryScore() {
+        int[] roll = nextRoll();
+        int total = 0;
+        
+        for (int category = 0; category < 13; category++)
+            total += scorecard.getPotentialCategoryScore(category, roll);
+        
+        return total;
+    }
+    
+    
+    
+    @Benchmark
+    public int getPotentialCategoryScores() {
+        return scorecard.getPotentialCategoryScores(nextRoll(), scores) + scores[12];
+    }
+    
+    
+    
+    @Benchmark
+    public int scoreInCategory() {
+        YahtzeeScorecard card = new YahtzeeScorecard();
+        int result = 0;
+        
+        for (int category = 0; category < 13; category++)
+            result += card.scoreInCategory(category, nextRoll());
+        
+        return result;
+    }
+    
+    
+    
+    @Benchmark
+    public int getTotalScore() { return filled.getTotalScore(); }
+}
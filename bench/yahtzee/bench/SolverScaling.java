@@ -0,0 +1,42 @@
+package yahtzee.bench;
+
+import yahtzee.YahtzeeSolver;
+
+public class SolverScaling {
+    /**
+     * Time the parallel solver at 1 to N threads and check each table against the single-threaded one
+     * 
+     * @param args Optional maximum thread count, defaults to the available processors
+     */
+    public static void main(String[] args) {
+        int maxThreads = (args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors());
+        
+        long start = System.nanoTime();
+        YahtzeeSolver reference = YahtzeeSolver.solve();
+        double baseline = (System.nanoTime() - start) / 1e9;
+        
+        System.out.printf("%-10s %10s %10s %12s%n", "threads", "seconds", "speedup", "identical");
+        System.out.printf("%-10s %10.2f %10.2f %12s%n", "serial", baseline, 1.0, "-");
+        
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            start = System.nanoTime();
+            YahtzeeSolver solver = YahtzeeSolver.solve(threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            
+            System.out.printf("%-10d %10.2f %10.2f %12s%n", threads, seconds, baseline / seconds, identical(reference, solver));
+        }
+    }
+    
+    
+    
+    /**
+     * @return Whether two solved tables hold the same bits in every state
+     */
+    private static boolean identical(YahtzeeSolver a, YahtzeeSolver b) {
+        for (int state = 0; state < YahtzeeSolver.STATES; state++)
+            if (Double.doubleToRawLongBits(a.getStateValue(state)) != Double.doubleToRawLongBits(b.getStateValue(state)))
+                return false;
+        
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package yahtzee.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import yahtzee.YahtzeeGame;
+import yahtzee.YahtzeeOffHeapValues;
+import yahtzee.YahtzeePlayer;
+import yahtzee.YahtzeeSimulationResult;
+import yahtzee.YahtzeeSimulator;
+import yahtzee.YahtzeeSolver;
+import yahtzee.YahtzeeStateValues;
+import yahtzee.YahtzeeStrategyFile;
+
+public class StorageReport {
+    private static final long SEED = 20240601L;
+    
+    
+    
+    /**
+     * Compare the memory footprint and accuracy of each off-heap precision against the double table
+     * 
+     * @param args Optional number of simulated games, defaults to 20000
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = (args.length > 0 ? Integer.parseInt(args[0]) : 20000);
+        YahtzeeSolver reference = YahtzeeStrategyFile.loadOrBuild(new File(YahtzeeStrategyFile.DEFAULT_FILE_NAME));
+        YahtzeeSimulationResult baseline = simulate(games, reference, reference, new long[1]);
+        
+        System.out.printf("%d reachable of %d states, %d games per row%n%n", YahtzeeOffHeapValues.REACHABLE_STATES, YahtzeeSolver.STATES, games);
+        System.out.printf("%-10s %12s %14s %14s %14s %10s%n", "storage", "bytes", "max |error|", "start error", "moves differ", "mean");
+        System.out.printf("%-10s %12d %14s %14s %14s %10.3f%n", "double", (long)YahtzeeSolver.STATES * 8, "-", "-", "-", baseline.getMean());
+        
+        for (YahtzeeOffHeapValues.Precision precision : YahtzeeOffHeapValues.Precision.values()) {
+            YahtzeeOffHeapValues values = YahtzeeOffHeapValues.copyOf(reference.getStateValues(), precision);
+            long[] differing = new long[1];
+            YahtzeeSimulationResult result = simulate(games, reference, new YahtzeeSolver(values), differing);
+            
+            System.out.printf("%-10s %12d %14.3g %14.3g %14d %10.3f%n", precision, values.getMemoryBytes(),
+                    maxError(reference.getStateValues(), values), Math.abs(values.getValue(0) - reference.getStateValue(0)),
+                    differing[0], result.getMean());
+        }
+    }
+    
+    
+    
+    /**
+     * @return Largest difference over reachable states
+     */
+    private static double maxError(YahtzeeStateValues exact, YahtzeeStateValues stored) {
+        double max = 0;
+        
+        for (int state = 0; state < YahtzeeSolver.STATES; state++)
+            if (YahtzeeSolver.isReachable(state))
+                max = Math.max(max, Math.abs(exact.getValue(state) - stored.getValue(state)));
+        
+        return max;
+    }
+    
+    
+    
+    /**
+     * Play games on one thread with the same dice as every other row, following one solver and
+     * counting the moves where the other would differ
+     */
+    private static YahtzeeSimulationResult simulate(int games, final YahtzeeSolver reference, final YahtzeeSolver tested,
+            final long[] differing) throws InterruptedException {
+        return YahtzeeSimulator.simulate(games, 1, SEED, () -> new YahtzeePlayer() {
+            @Override public int chooseMove(YahtzeeGame game) {
+                int move = tested.getBestMove(game.getState(), game.getRoll(), game.getRerolls());
+                
+                if (move != reference.getBestMove(game.getState(), game.getRoll(), game.getRerolls()))
+                    differing[0]++;
+                
+                return move;
+            }
+        });
+    }
+}
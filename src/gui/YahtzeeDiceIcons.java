@@ -0,0 +1,93 @@
+package gui;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import java.io.IOException;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+import yahtzee.YahtzeeGame;
+
+public class YahtzeeDiceIcons {
+    /** Largest scale, far past any screen; keeps a mistyped scale from exhausting memory */
+    static final double MAX_SCALE = 16;
+    
+    private final CompletableFuture<ImageIcon[]> icons;
+    
+    
+    
+    /**
+     * Start decoding the six face images in the background
+     * 
+     * @param scale Size relative to the images, e.g. 2 for HiDPI screens; each face is resampled once.
+     *        A scale that is not a positive number is taken as 1, one above MAX_SCALE as MAX_SCALE
+     */
+    public YahtzeeDiceIcons(double scale) {
+        final double size = (scale > 0 && !Double.isInfinite(scale) ? Math.min(scale, MAX_SCALE) : 1);
+        
+        icons = CompletableFuture.supplyAsync(() -> {
+            ImageIcon[] faces = new ImageIcon[YahtzeeGame.DICE_FACES + 1];
+            
+            for (int face = 1; face <= YahtzeeGame.DICE_FACES; face++)
+                faces[face] = decode("/images/face" + face + ".png", size);
+            
+            return faces;
+        });
+    }
+    
+    
+    
+    /**
+     * Get the icon of a face, waiting for the decode on first use if it is still running
+     * 
+     * @param face Face, 1 to 6
+     * @return Shared icon, or null if the image is missing
+     */
+    public ImageIcon getIcon(int face) { return icons.join()[face]; }
+    
+    
+    
+    /**
+     * Decode an image resource, resampled to a scale
+     * 
+     * @param path Resource path
+     * @param scale Size relative to the image
+     * @return Icon, or null if the resource is missing or unreadable
+     */
+    private static ImageIcon decode(String path, double scale) {
+        java.net.URL source = YahtzeeDiceIcons.class.getResource(path);
+        
+        if (source == null)
+            return null;
+        
+        BufferedImage image;
+        
+        try {
+            image = ImageIO.read(source);
+        } catch (IOException e) {
+            return null;
+        }
+        
+        if (image == null)
+            return null;
+        if (scale == 1)
+            return new ImageIcon(image);
+        
+        // A tiny scale still leaves a pixel
+        int width = (int)Math.max(1, Math.round(image.getWidth() * scale)), height = (int)Math.max(1, Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        
+        return new ImageIcon(scaled);
+    }
+}
@@ -1,41 +1,48 @@
 package gui;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.FileWriter;
-import java.io.PrintWriter;
 
-import java.util.ArrayList;
-import java.util.Scanner;
-import java.util.Queue;
-import java.util.PriorityQueue;
-import java.util.Iterator;
+import java.util.List;
 
 import javax.swing.JOptionPane;
-import javax.swing.ImageIcon;
 
+import yahtzee.YahtzeeGame;
+import yahtzee.YahtzeeHighscoreJournal;
+import yahtzee.YahtzeeHighscoreStore;
+import yahtzee.YahtzeeHighscoreWriter;
+import yahtzee.YahtzeeLeaderboard;
+import yahtzee.YahtzeeReplayWriter;
+import yahtzee.YahtzeeSavedGame;
 import yahtzee.YahtzeeScore;
 import yahtzee.YahtzeeScorecard;
+import yahtzee.YahtzeeScorecardListener;
+import yahtzee.YahtzeeSplittableDice;
+import yahtzee.YahtzeeStrategyFile;
 
 public class YahtzeeGUI extends javax.swing.JFrame {
     private final javax.swing.JLabel[] highscoreLabels, diceLabels, diceIcons;
     private final java.awt.Checkbox[] diceCheckboxes;
     private final javax.swing.JButton[] scoreButtons;
     private final String HIGHSCORE_FILE_NAME = "highscores.dat";
-    private final int MAX_TURNS = 13;
-    private final int DICE_FACES = 6;
-    private final int REROLLS_ALLOWED = 2;
+    private final int HIGHSCORE_FOLD_RECORDS = 256;
+    private final File savedGameFile = new File(YahtzeeSavedGame.DEFAULT_FILE_NAME);
+    private final YahtzeeHighscoreWriter writer = new YahtzeeHighscoreWriter(new File(HIGHSCORE_FILE_NAME),
+            new File(YahtzeeHighscoreStore.DEFAULT_FILE_NAME), 8, HIGHSCORE_FOLD_RECORDS);
+    private final YahtzeeDiceIcons faceIcons = new YahtzeeDiceIcons(diceScale());
+    private final YahtzeeHintPanel hintPanel = new YahtzeeHintPanel(new File(YahtzeeStrategyFile.DEFAULT_FILE_NAME));
     
-    private Queue<YahtzeeScore> highscores = new PriorityQueue<>();
-    private ArrayList<Integer> reactivationQueue = new ArrayList<>();
-    private YahtzeeScorecard scorecard = new YahtzeeScorecard();
+    private YahtzeeLeaderboard highscores = new YahtzeeLeaderboard();
+    private final YahtzeeSplittableDice dice = new YahtzeeSplittableDice(0);
+    
+    private YahtzeeGame game = new YahtzeeGame(dice);
+    private YahtzeeReplayWriter replays;
     private String playerName;
-    private int[] roll = new int[5];
-    private int turn = 0;
-    private int rerolls = REROLLS_ALLOWED;
-    private int yahtzees = 0;
-    private boolean grantedLowerBonus = false;
+    private long seed;
+    private volatile boolean recordSaved;
+    private int[] potentialScores = new int[13];
+    private int[] shownFaces = new int[YahtzeeGame.DICE];
+    private int[] shownPotentialScores = new int[13];
    
     
     
@@ -45,9 +52,23 @@ public class YahtzeeGUI extends javax.swing.JFrame {
     public YahtzeeGUI() {
         initComponents();
         
+        // Hints go below the designed form
+        javax.swing.JPanel content = new javax.swing.JPanel(new java.awt.BorderLayout());
+        content.add(getContentPane(), java.awt.BorderLayout.CENTER);
+        content.add(hintPanel, java.awt.BorderLayout.SOUTH);
+        setContentPane(content);
+        pack();
+        
         // Get player name
         playerName = JOptionPane.showInputDialog("Enter your name:");
         
+        // Cut the name to what the highscore journal stores, at least a byte per char
+        if (playerName != null && playerName.length() > YahtzeeHighscoreJournal.MAX_NAME_BYTES)
+            playerName = playerName.substring(0, YahtzeeHighscoreJournal.MAX_NAME_BYTES);
+        
+        while (playerName != null && playerName.getBytes(java.nio.charset.StandardCharsets.UTF_8).length > YahtzeeHighscoreJournal.MAX_NAME_BYTES)
+            playerName = playerName.substring(0, playerName.length() - 1);
+        
         panGame.setBorder(javax.swing.BorderFactory.createTitledBorder("Game - " + playerName));
         
         // Allocate element collections for convenient iteration
@@ -67,9 +88,80 @@ public class YahtzeeGUI extends javax.swing.JFrame {
             btScoreAces, btScoreTwos, btScoreThrees, btScoreFours, btScoreFives, btScoreSixes, btScoreThreeKind, btScoreFourKind, btScoreFullHouse, btScoreSmallStraight, btScoreLargeStraight, btScoreYahtzee, btScoreChance
         };
         
-        // Initiate first turn
+        // Totals follow the scorecard from now on
+        java.util.Arrays.fill(shownPotentialScores, -1);
+        game.getScorecard().addListener(new ScorecardView());
+        updateScoreTotalTexts();
+        
+        // Show the unfinished game from the last run, or a new first turn
         loadHighscores();
-        advanceTurn();
+        openReplays();
+        
+        if (!resumeGame())
+            startGame();
+        
+        updateTurn();
+        saveGame();
+    }
+    
+    
+    
+    /**
+     * Seed the dice for a new game and roll its first turn
+     */
+    private void startGame() {
+        seed = java.util.concurrent.ThreadLocalRandom.current().nextLong();
+        dice.setSeed(seed);
+        
+        if (replays != null)
+            replays.setSeed(seed);
+        
+        game.reset();
+    }
+    
+    
+    
+    /**
+     * Restore the game saved by the last run, if it was unfinished
+     * 
+     * @return Whether a game was restored
+     */
+    private boolean resumeGame() {
+        try {
+            if (!YahtzeeSavedGame.load(savedGameFile, game, replays))
+                return false;
+        } catch (IOException e) {
+            System.err.println("Could not resume game: " + e.getMessage());
+            return false;
+        }
+        
+        // A finished game is replaced by startGame, which resets it
+        if (game.isOver())
+            return false;
+        
+        // The continued replay record keeps the game's seed; the rest of its dice come fresh
+        seed = (replays != null && replays.getUnfinishedRecord() != null ? replays.getRecordSeed() : 0);
+        dice.setSeed(java.util.concurrent.ThreadLocalRandom.current().nextLong());
+        return true;
+    }
+    
+    
+    
+    /**
+     * Save the game after every action, so the next run can resume it; a finished game is not kept.
+     * Notes for the replay shutdown hook whether the save holds the game's replay record
+     */
+    private void saveGame() {
+        try {
+            if (game.isOver()) {
+                java.nio.file.Files.deleteIfExists(savedGameFile.toPath());
+                recordSaved = false;
+            }
+            else
+                recordSaved = YahtzeeSavedGame.save(savedGameFile, game, replays);
+        } catch (IOException e) {
+            System.err.println("Could not save game: " + e.getMessage());
+        }
     }
     
     
@@ -80,168 +172,201 @@ public class YahtzeeGUI extends javax.swing.JFrame {
      * @param category 
      */
     private void scoreInCategory(int category) {
-        if (category == 11 && scorecard.eligibleForCategory(11, roll))
-            yahtzees++;
-        
-        scorecard.scoreInCategory(category, roll);
-        scoreButtons[category].setEnabled(false);
-        
-        while (reactivationQueue.size() > 0)
-            scoreButtons[reactivationQueue.remove(0)].setEnabled(true);
+        hintPanel.cancel();
         
-        // Lower section bonus
-        if (scorecard.getLowerScore() >= 63 && !grantedLowerBonus) {
-            grantedLowerBonus = true;
-            scorecard.incrementBonus(50);
-        }
+        if (!game.scoreInCategory(category))
+            return;
         
-        advanceTurn();
+        updateTurn();
+        saveGame();
     }
     
     
     
     /**
-     * Update the text in the scorecard buttons
+     * Update the text in the open scorecard buttons whose potential score changed, and enable the
+     * categories the roll may go in
      */
     private void updateScoreButtonTexts() {
-        for (int i = 0; i < scoreButtons.length; i++)
-            if (scoreButtons[i].isEnabled())
-                scoreButtons[i].setText("Score " + scorecard.getPotentialCategoryScore(i, roll));
-                
+        game.getScorecard().getPotentialCategoryScores(game.getRoll(), potentialScores);
+        
+        for (int i = 0; i < scoreButtons.length; i++) {
+            boolean available = game.isCategoryAvailable(i);
+            
+            if (scoreButtons[i].isEnabled() != available)
+                scoreButtons[i].setEnabled(available);
+            
+            if (game.getScorecard().getCategoryScore(i) == -1 && shownPotentialScores[i] != potentialScores[i]) {
+                shownPotentialScores[i] = potentialScores[i];
+                scoreButtons[i].setText("Score " + potentialScores[i]);
+            }
+        }
     }
     
     
     
     /**
-     * Update the text in the scorecard totals
+     * Set every scorecard total; afterwards ScorecardView updates only the ones that change
      */
     private void updateScoreTotalTexts() {
-        int lowerTotal = 0;
+        YahtzeeScorecard scorecard = game.getScorecard();
         
-        for (int i = 0; i < 6; i++) {
-            int sc = scorecard.getCategoryScore(i);
-            lowerTotal += (sc == -1 ? 0 : sc);
+        labLowerScore.setText("Lower: " + scorecard.getLowerScore());
+        labUpperScore.setText("Upper: " + scorecard.getUpperScore());
+        labBonusScore.setText("Bonus: " + scorecard.getBonusScore());
+        labTotalScore.setText("Score: " + scorecard.getTotalScore());
+    }
+    
+    
+    
+    /**
+     * Keeps the totals and score buttons in step with the scorecard, touching only what changed
+     */
+    private class ScorecardView implements YahtzeeScorecardListener {
+        @Override public void categoryChanged(YahtzeeScorecard scorecard, int category, int oldScore, int newScore) {
+            if (Math.max(oldScore, 0) != Math.max(newScore, 0)) {
+                if (category < 6)
+                    labLowerScore.setText("Lower: " + scorecard.getLowerScore());
+                else
+                    labUpperScore.setText("Upper: " + scorecard.getUpperScore());
+                
+                labTotalScore.setText("Score: " + scorecard.getTotalScore());
+            }
+            
+            // A filled category shows its score, also when restored; a reopened one shows its
+            // potential score again on the next roll
+            if (newScore >= 0)
+                scoreButtons[category].setText("Score " + newScore);
+            else
+                shownPotentialScores[category] = -1;
         }
         
-        int upperTotal = 0;
-        
-        for (int i = 6; i < 13; i++) {
-            int sc = scorecard.getCategoryScore(i);
-            upperTotal += (sc == -1 ? 0 : sc);
+        @Override public void bonusChanged(YahtzeeScorecard scorecard, int oldBonus, int newBonus) {
+            labBonusScore.setText("Bonus: " + newBonus);
+            labTotalScore.setText("Score: " + scorecard.getTotalScore());
         }
+    }
+    
+    
+    
+    /**
+     * Reroll the dice that are not kept
+     */
+    private void roll() {
+        int keepMask = 0;
         
-        labLowerScore.setText("Lower: " + lowerTotal);
-        labUpperScore.setText("Upper: " + upperTotal);
-        labBonusScore.setText("Bonus: " + scorecard.getBonusScore());
-        labTotalScore.setText("Score: " + scorecard.getTotalScore());
+        for (int i = 0; i < diceCheckboxes.length; i++)
+            if (diceCheckboxes[i].getState())
+                keepMask |= 1 << i;
+        
+        hintPanel.cancel();
+        game.roll(keepMask);
+        updateRoll();
+        saveGame();
     }
     
     
     
     /**
-     * Roll the dice and decrement rerolls if necessary
-     * 
-     * @param initial 
+     * Show the dice, score buttons and rerolls for the current roll
      */
-    private void roll(boolean initial) {
-        // Roll dice
-        int forceNum = 0; // (int)(Math.random() * 6) + 1;
+    private void updateRoll() {
+        int[] roll = game.getRoll();
         
         for (int i = 0; i < roll.length; i++)
-            if (!diceCheckboxes[i].getState()) {
-                int num = (int)(Math.random() * 6) + 1;
-                roll[i] = (forceNum == 0 ? num : forceNum);
-                diceLabels[i].setText("" + roll[i]);
-            }
+            diceLabels[i].setText("" + roll[i]);
         
         updateScoreButtonTexts();
         updateDiceIcons();
         
-        // Multiple yahtzees bonus
-        if (scorecard.eligibleForCategory(11, roll) && yahtzees > 0) {
-            scorecard.incrementBonus(100);
-
-            // Force correct scoring
-            int yahtzeeFace = roll[0];
-
-            if (scorecard.getCategoryScore(yahtzeeFace - 1) == -1)
-                for (int i = 0; i < 13; i++)
-                    if (i != yahtzeeFace - 1 && scoreButtons[i].isEnabled()) {
-                        scoreButtons[i].setEnabled(false);
-                        reactivationQueue.add(i);
-                    }
-        }
-        
-        if (initial)
-            return;
-        
-        // Update rerolls
-        rerolls--;
+        btReroll.setText("Reroll (" + game.getRerolls() + ")");
+        btReroll.setEnabled(game.getRerolls() > 0);
         
-        btReroll.setText("Reroll (" + rerolls + ")");
-        
-        if (rerolls == 0)
-            btReroll.setEnabled(false);
+        hintPanel.requestHint(game.getState(), game.getRoll(), game.getRerolls(), game.getScorecard().getTotalScore());
     }
     
     
     
     /**
-     * Increment turns by 1 and reset the necessary game features
+     * Show a new turn, or the final score once the game is over
      */
-    private void advanceTurn() {
-        turn++;
-        
-        if (turn <= MAX_TURNS)
-            labTurn.setText("Turn " + turn);
-        else {
+    private void updateTurn() {
+        if (game.isOver()) {
             labTurn.setText("Done!");
             btReroll.setEnabled(false);
+            hintPanel.cancel();
+            
+            for (javax.swing.JButton button : scoreButtons)
+                button.setEnabled(false);
             
-            updateScoreTotalTexts();
             saveHighscores();
             
             return;
         }
         
-        rerolls = REROLLS_ALLOWED;
+        labTurn.setText("Turn " + game.getTurn());
         
         for (java.awt.Checkbox box : diceCheckboxes)
             box.setState(false);
         
-        btReroll.setEnabled(true);
-        btReroll.setText("Reroll (" + rerolls + ")");
-        
-        roll(true);
-        updateScoreTotalTexts();
+        updateRoll();
     }
     
     
     
     /**
-     * Load highscores from the designated highscore file
+     * Load highscores on the writer thread; the board fills in when they arrive, and the game is
+     * playable meanwhile
      */
     private void loadHighscores() {
-        Scanner reader;
-        File file = new File(HIGHSCORE_FILE_NAME);
+        writer.getBoard().whenComplete((loaded, failure) -> java.awt.EventQueue.invokeLater(() -> {
+            if (failure != null)
+                JOptionPane.showMessageDialog(this, "Could not read highscores: " + failure.getMessage());
+            else {
+                highscores.addAll(loaded);
+                updateHighscoreUI();
+            }
+        }));
         
-        try {
-            file.createNewFile();
-        } catch (IOException e) {}
+        // Whatever is still queued is written before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Could not save highscores: " + e.getMessage());
+            }
+        }));
+    }
+    
+    
+    
+    /**
+     * Add current scorecard score to highscores and queue it for the writer thread
+     */
+    private void saveHighscores() {
+        // Every game is kept, the board shows the best
+        YahtzeeScore score = new YahtzeeScore(playerName, game.getScorecard().getTotalScore(), System.currentTimeMillis(), seed);
+        highscores.add(score);
         
-        // Read from file
+        // A writer that has failed refuses new scores at once
         try {
-            reader = new Scanner(file);
-        } catch (FileNotFoundException e) {
-            return;
-        }
-        
-        while (reader.hasNextLine()) {
-            String[] data = reader.nextLine().split("-");
-            highscores.add(new YahtzeeScore(data[0], Integer.parseInt(data[1])));
+            writer.record(score);
+            
+            writer.flush().whenComplete((done, failure) -> {
+                if (failure != null)
+                    java.awt.EventQueue.invokeLater(() -> JOptionPane.showMessageDialog(this, "Could not save highscore: " + failure.getMessage()));
+            });
+        } catch (IllegalStateException e) {
+            JOptionPane.showMessageDialog(this, "Could not save highscore: " + e.getMessage());
         }
         
-        reader.close();
+        // The finished game's record is ready in the replay buffer
+        if (replays != null)
+            try {
+                replays.flush();
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Could not save replay: " + e.getMessage());
+            }
         
         // Update UI
         updateHighscoreUI();
@@ -250,32 +375,29 @@ public class YahtzeeGUI extends javax.swing.JFrame {
     
     
     /**
-     * Add current scorecard score to highscores and write to disk
+     * Record every game played in the replay log; the game stays playable without it
      */
-    private void saveHighscores() {
-        // Enqueue score
-        YahtzeeScore score = new YahtzeeScore(playerName, scorecard.getTotalScore());
-        highscores.add(score);
+    private void openReplays() {
+        try {
+            replays = new YahtzeeReplayWriter(new File(YahtzeeReplayWriter.DEFAULT_FILE_NAME));
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not open replays: " + e.getMessage());
+            return;
+        }
         
-        while (highscores.size() > highscoreLabels.length)
-            highscores.poll();
+        game.addListener(replays);
         
-        // Write
-        try {
-            PrintWriter writer = new PrintWriter(new FileWriter(HIGHSCORE_FILE_NAME));
-            Iterator<YahtzeeScore> iterator = highscores.iterator();
-            
-            while (iterator.hasNext()) {
-                YahtzeeScore high = iterator.next();
-                writer.println(high.getPlayerName() + "-" + high.getScore());
+        // An unfinished game is recorded as far as it got, unless the saved game continues it
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (recordSaved)
+                    replays.discardRecord();
+                
+                replays.close();
+            } catch (IOException e) {
+                System.err.println("Could not save replays: " + e.getMessage());
             }
-            
-            writer.close();
-            
-        } catch (IOException e) {}
-        
-        // Update UI
-        updateHighscoreUI();
+        }));
     }
     
     
@@ -284,43 +406,46 @@ public class YahtzeeGUI extends javax.swing.JFrame {
      * Update scoreboard
      */
     private void updateHighscoreUI() {
-        Queue<YahtzeeScore> clone = new PriorityQueue<>(highscores);
+        List<YahtzeeScore> top = highscores.getTop(highscoreLabels.length);
         
-        for (int i = 0; i < highscoreLabels.length; i++) {
-            String str = "No highscore";
-            
-            if (!clone.isEmpty())
-                str = clone.poll().toString();
-            
-            highscoreLabels[i].setText(str);
-        }
+        for (int i = 0; i < highscoreLabels.length; i++)
+            highscoreLabels[i].setText(i < top.size() ? top.get(i).toString() : "No highscore");
     }
     
     
     
     /**
-     * Update dice icons
+     * Update the icons of the dice whose face changed
      */
     private void updateDiceIcons() {
+        int[] roll = game.getRoll();
+        
         for (int i = 0; i < diceIcons.length; i++)
-            diceIcons[i].setIcon(createImageIcon("/images/face" + roll[i] + ".png"));
+            if (shownFaces[i] != roll[i]) {
+                shownFaces[i] = roll[i];
+                diceIcons[i].setIcon(faceIcons.getIcon(roll[i]));
+            }
     }
     
     
     
     /**
-     * Create an image icon from file path
-     * 
-     * @param path File path
-     * @return ImageIcon representation
+     * @return Dice icon scale from -Dyahtzee.diceScale, or 1 if it is unset or not a positive number
      */
-    private ImageIcon createImageIcon(String path) {
-        java.net.URL source = getClass().getResource(path);
+    private static double diceScale() {
+        String value = System.getProperty("yahtzee.diceScale", "1");
         
-        if (source != null)
-            return new ImageIcon(source);
+        try {
+            double scale = Double.parseDouble(value);
+            
+            if (scale > 0 && !Double.isInfinite(scale))
+                return scale;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
         
-        return null;
+        System.err.println("Ignoring dice scale " + value + ", not a positive number");
+        return 1;
     }
     
     
@@ -979,7 +1104,7 @@ public class YahtzeeGUI extends javax.swing.JFrame {
      * Reroll
      */
     private void btRerollActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btRerollActionPerformed
-        roll(false);
+        roll();
     }//GEN-LAST:event_btRerollActionPerformed
 
     
@@ -988,24 +1113,10 @@ public class YahtzeeGUI extends javax.swing.JFrame {
      * Resetting the game
      */
     private void btRestartActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btRestartActionPerformed
-        // Reset disabled buttons
-        btReroll.setEnabled(true);
-        
-        for (javax.swing.JButton button : scoreButtons)
-            button.setEnabled(true);
-        
-        // Reset checkboxes
-        for (java.awt.Checkbox box : diceCheckboxes)
-            box.setState(false);
-        
-        // Reset globals, wipe UI, initiate first turn
-        turn = 0;
-        rerolls = REROLLS_ALLOWED;
-        yahtzees = 0;
-        grantedLowerBonus = false;
-        scorecard = new YahtzeeScorecard();
-        
-        advanceTurn();
+        // Wipe the game and show its first turn
+        startGame();
+        updateTurn();
+        saveGame();
         
     }//GEN-LAST:event_btRestartActionPerformed
 
@@ -0,0 +1,177 @@
+package gui;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+
+import yahtzee.YahtzeeSolver;
+import yahtzee.YahtzeeStrategyFile;
+
+public class YahtzeeHintPanel extends javax.swing.JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] CATEGORY_NAMES = {
+        "Aces", "Twos", "Threes", "Fours", "Fives", "Sixes", "Three of a kind", "Four of a kind", "Full house",
+        "Small straight", "Large straight", "Yahtzee", "Chance"
+    };
+    
+    private final javax.swing.JLabel labHint = new javax.swing.JLabel(" ");
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "yahtzee-hints");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final File strategyFile;
+    
+    // Only touched by the hint thread
+    private YahtzeeSolver solver;
+    
+    // Set by the build thread once the table is written and mapped
+    private volatile YahtzeeSolver table;
+    
+    // Only touched by the event thread
+    private Future<?> pending;
+    private int generation;
+    
+    
+    
+    /**
+     * Build an empty hint panel; on first use the strategy table is mapped if it is valid, else
+     * states are solved lazily as the game reaches them while the table is rebuilt in the background
+     * 
+     * @param strategyFile Strategy table file
+     */
+    public YahtzeeHintPanel(File strategyFile) {
+        this.strategyFile = strategyFile;
+        
+        setBorder(javax.swing.BorderFactory.createTitledBorder("Hint"));
+        setLayout(new java.awt.BorderLayout());
+        add(labHint, java.awt.BorderLayout.CENTER);
+    }
+    
+    
+    
+    /**
+     * Compute the optimal move for a roll in the background, replacing any hint in flight
+     * 
+     * @param state Solver state index
+     * @param roll Dice values, copied
+     * @param rerolls Rerolls remaining
+     * @param score Score so far
+     */
+    public void requestHint(final int state, int[] roll, final int rerolls, final int score) {
+        cancel();
+        labHint.setText("Thinking...");
+        
+        final int[] dice = roll.clone();
+        final int current = generation;
+        
+        pending = executor.submit(() -> {
+            String text;
+            
+            // A lazy solve stops early once the request is cancelled
+            try {
+                text = describe(state, dice, rerolls, score);
+            } catch (java.util.concurrent.CancellationException e) {
+                return;
+            }
+            
+            if (Thread.currentThread().isInterrupted())
+                return;
+            
+            // Publish only if no newer request or cancellation happened meanwhile
+            final String result = text;
+            
+            SwingUtilities.invokeLater(() -> {
+                if (current == generation)
+                    labHint.setText(result);
+            });
+        });
+    }
+    
+    
+    
+    /**
+     * Drop the hint in flight, if any, and clear the panel
+     */
+    public void cancel() {
+        generation++;
+        
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        
+        labHint.setText(" ");
+    }
+    
+    
+    
+    /**
+     * Find and phrase the optimal move; runs on the hint thread
+     * 
+     * @param state Solver state index
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @param score Score so far
+     * @return Hint text
+     */
+    private String describe(int state, int[] roll, int rerolls, int score) {
+        if (solver == null)
+            try {
+                solver = YahtzeeStrategyFile.load(strategyFile, true);
+            } catch (IOException e) {
+                // Missing, stale or damaged: hint lazily until the rebuilt table is mapped
+                solver = YahtzeeSolver.lazy();
+                build();
+            }
+        
+        if (table != null)
+            solver = table;
+        
+        double[] value = new double[1];
+        int move = solver.getBestMove(state, roll, rerolls, value);
+        double expected = score + value[0];
+        String action;
+        
+        if (!YahtzeeSolver.isKeep(move))
+            action = "Score in " + CATEGORY_NAMES[move];
+        else if (YahtzeeSolver.keepMask(move) == 0)
+            action = "Reroll all dice";
+        else {
+            StringBuilder kept = new StringBuilder("Keep");
+            
+            for (int i = 0; i < roll.length; i++)
+                if ((YahtzeeSolver.keepMask(move) & (1 << i)) != 0)
+                    kept.append(' ').append(roll[i]);
+            
+            action = kept.toString();
+        }
+        
+        return String.format("%s (expected final score %.1f)", action, expected);
+    }
+    
+    
+    
+    /**
+     * Solve and write the strategy table on a low priority daemon thread, then publish it to the
+     * hint thread; if it cannot be written, hints stay lazy
+     */
+    private void build() {
+        Thread thread = new Thread(() -> {
+            try {
+                table = YahtzeeStrategyFile.loadOrBuild(strategyFile);
+            } catch (IOException e) {
+                System.err.println("Could not write strategy table, solving as the game goes: " + e.getMessage());
+            }
+        }, "yahtzee-strategy");
+        
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+}
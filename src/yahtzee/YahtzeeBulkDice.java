@@ -0,0 +1,74 @@
+package yahtzee;
+
+import java.util.SplittableRandom;
+
+public class YahtzeeBulkDice implements YahtzeeDiceSource {
+    /** Dice taken from one 64-bit draw */
+    static final int DICE_PER_DRAW = 24;
+    
+    // 6^24, and the largest multiple of it below 2^64 as an unsigned long
+    private static final long SPAN = 4738381338321616896L;
+    private static final long LIMIT = 3 * SPAN;
+    
+    private final SplittableRandom random;
+    private long digits;
+    private int left;
+    
+    
+    
+    /**
+     * Dice seeded for reproducible games
+     * 
+     * @param seed Seed
+     */
+    public YahtzeeBulkDice(long seed) { this(new SplittableRandom(seed)); }
+    
+    
+    
+    /**
+     * @param random Generator, owned by this source from now on
+     */
+    public YahtzeeBulkDice(SplittableRandom random) { this.random = random; }
+    
+    
+    
+    /**
+     * @return Independent source for another thread
+     */
+    public YahtzeeBulkDice split() { return new YahtzeeBulkDice(random.split()); }
+    
+    
+    
+    /**
+     * Read the next base-6 digit of the current draw, drawing again once all are used
+     * 
+     * @return Face of one die, 1 to 6
+     */
+    @Override public int roll() {
+        if (left == 0)
+            draw();
+        
+        int face = (int)(digits % 6);
+        digits /= 6;
+        left--;
+        
+        return face + 1;
+    }
+    
+    
+    
+    /**
+     * Draw a uniform value below 6^24; draws at or above 3 * 6^24 are rejected so that every
+     * remainder is equally likely, which accepts about 77% of draws
+     */
+    private void draw() {
+        long bits;
+        
+        do {
+            bits = random.nextLong();
+        } while (Long.compareUnsigned(bits, LIMIT) >= 0);
+        
+        digits = Long.remainderUnsigned(bits, SPAN);
+        left = DICE_PER_DRAW;
+    }
+}
@@ -0,0 +1,231 @@
+package yahtzee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+
+public final class YahtzeeDecisionTable {
+    /** Default location of the decision table */
+    public static final String DEFAULT_FILE_NAME = "decisions.dat";
+    
+    /** File magic, "YHTD" */
+    static final int MAGIC = 0x59485444;
+    
+    /** Format version; bump whenever the header or payload layout changes */
+    static final int VERSION = 1;
+    
+    private static final int ROLLS = YahtzeeRollTable.ROLLS;
+    private static final int STAGES = YahtzeeSolver.REROLLS + 1;
+    private static final int ENTRIES_PER_STATE = STAGES * ROLLS;
+    private static final int HEADER_BYTES = YahtzeeStrategyFile.HEADER_BYTES;
+    private static final long PAYLOAD_BYTES = (long)YahtzeeOffHeapValues.REACHABLE_STATES * ENTRIES_PER_STATE;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    private final ByteBuffer moves;
+    
+    
+    
+    private YahtzeeDecisionTable(ByteBuffer moves) { this.moves = moves; }
+    
+    
+    
+    /**
+     * Map a decision table, compiling and writing it first if it is missing, stale or corrupt
+     * 
+     * @param file Decision table file
+     * @param solver Solved strategy to compile from
+     * @return Mapped table
+     * @throws IOException If the table cannot be written or mapped
+     */
+    public static YahtzeeDecisionTable loadOrBuild(File file, YahtzeeSolver solver) throws IOException {
+        try {
+            return load(file, true);
+        } catch (IOException e) {
+            write(file, solver, Runtime.getRuntime().availableProcessors());
+            return load(file, false);
+        }
+    }
+    
+    
+    
+    /**
+     * Map a decision table; pages are read lazily and shared between processes mapping the same file
+     * 
+     * @param file Decision table file
+     * @param verify Whether to check the payload checksum, which reads the whole table once
+     * @return Mapped table
+     * @throws IOException If the file is missing, from another version or rules revision, or fails its checksum
+     */
+    public static YahtzeeDecisionTable load(File file, boolean verify) throws IOException {
+        MappedByteBuffer map;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() != HEADER_BYTES + PAYLOAD_BYTES)
+                throw new IOException("Decision table " + file + " has the wrong size");
+            
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        map.order(ORDER);
+        
+        if (map.getInt(0) != MAGIC)
+            throw new IOException("Not a decision table: " + file);
+        if (map.getInt(4) != VERSION || map.getInt(8) != YahtzeeStrategyFile.RULES || map.getInt(12) != YahtzeeOffHeapValues.REACHABLE_STATES)
+            throw new IOException("Stale decision table: " + file);
+        
+        map.position(HEADER_BYTES);
+        ByteBuffer payload = map.slice();
+        
+        if (verify && checksum(payload) != map.getLong(16))
+            throw new IOException("Corrupt decision table: " + file);
+        
+        return new YahtzeeDecisionTable(payload);
+    }
+    
+    
+    
+    /**
+     * Compile the optimal move of every reachable state, roll and reroll count on a fork-join
+     * pool straight into a mapped file, replacing any existing file atomically
+     * 
+     * @param file Decision table file
+     * @param solver Solved strategy
+     * @param threads Number of worker threads
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(File file, YahtzeeSolver solver, int threads) throws IOException {
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + PAYLOAD_BYTES);
+            map.position(HEADER_BYTES);
+            ByteBuffer payload = map.slice();
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            
+            try {
+                pool.invoke(new CompileTask(solver.getStateValues(), payload, 0, YahtzeeSolver.STATES));
+            } finally {
+                pool.shutdown();
+            }
+            
+            map.order(ORDER);
+            map.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, YahtzeeStrategyFile.RULES)
+                    .putInt(12, YahtzeeOffHeapValues.REACHABLE_STATES).putLong(16, checksum(payload));
+            map.force();
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    
+    
+    /**
+     * Look up the optimal move for a sorted roll
+     * 
+     * @param state Reachable state index
+     * @param roll Roll index
+     * @param rerolls Rerolls remaining
+     * @return Category index, or YahtzeeSolver.KEEP with a mask over the sorted dice to keep
+     */
+    public int getSortedMove(int state, int roll, int rerolls) {
+        return moves.get(YahtzeeOffHeapValues.rank(state) * ENTRIES_PER_STATE + rerolls * ROLLS + roll);
+    }
+    
+    
+    
+    /**
+     * Look up the optimal move for a roll in any order
+     * 
+     * @param state Reachable state index
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @return Category index, or YahtzeeSolver.KEEP with a mask over roll positions of the dice to keep
+     */
+    public int getMove(int state, int[] roll, int rerolls) {
+        int move = getSortedMove(state, YahtzeeRollTable.indexOf(roll), rerolls);
+        
+        if (YahtzeeSolver.isKeep(move))
+            return YahtzeeSolver.KEEP | YahtzeeKeepTable.toPositionMask(roll, YahtzeeSolver.keepMask(move));
+        
+        return move;
+    }
+    
+    
+    
+    /**
+     * @param payload Table payload, position unchanged
+     * @return CRC-32 of the payload
+     */
+    private static long checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        
+        return crc.getValue();
+    }
+    
+    
+    
+    /**
+     * Compiles a range of state indices, splitting until the range is small; each state
+     * writes only its own block of the payload
+     */
+    private static final class CompileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_STATES = 1 << 12;
+        
+        private final YahtzeeStateValues values;
+        private final ByteBuffer payload;
+        private final int from, to;
+        
+        CompileTask(YahtzeeStateValues values, ByteBuffer payload, int from, int to) {
+            this.values = values;
+            this.payload = payload;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override protected void compute() {
+            if (to - from > LEAF_STATES) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CompileTask(values, payload, from, mid), new CompileTask(values, payload, mid, to));
+                return;
+            }
+            
+            YahtzeeSolver.Workspace ws = new YahtzeeSolver.Workspace();
+            int[] category = new int[ROLLS];
+            
+            for (int state = from; state < to; state++) {
+                if (!YahtzeeSolver.isReachable(state))
+                    continue;
+                
+                int base = YahtzeeOffHeapValues.rank(state) * ENTRIES_PER_STATE;
+                
+                // A finished card has no moves; its block stays zero
+                if (YahtzeeSolver.filled(state) == YahtzeeSolver.ALL_FILLED)
+                    continue;
+                
+                YahtzeeSolver.evaluate(state, values, ws);
+                
+                for (int roll = 0; roll < ROLLS; roll++)
+                    category[roll] = YahtzeeSolver.bestCategory(state, roll, values);
+                
+                for (int rerolls = 0; rerolls < STAGES; rerolls++)
+                    for (int roll = 0; roll < ROLLS; roll++)
+                        payload.put(base + rerolls * ROLLS + roll, (byte)YahtzeeSolver.bestKeep(ws, roll, rerolls, category[roll]));
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package yahtzee;
+
+public interface YahtzeeDiceSource {
+    /**
+     * @return Face of one die, 1 to 6
+     */
+    int roll();
+    
+    
+    
+    /**
+     * Roll the dice that are not kept
+     * 
+     * @param dice Faces, updated in place
+     * @param keepMask Mask over dice positions to keep
+     */
+    default void roll(int[] dice, int keepMask) {
+        for (int i = 0; i < dice.length; i++)
+            if ((keepMask & (1 << i)) == 0)
+                dice[i] = roll();
+    }
+}
@@ -0,0 +1,495 @@
+package yahtzee;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class YahtzeeDistributionSolver {
+    /** Default highest target supported */
+    public static final int DEFAULT_MAX_TARGET = 300;
+    
+    private static final int ROLLS = YahtzeeRollTable.ROLLS;
+    private static final int KEEPS = YahtzeeKeepTable.KEEPS;
+    private static final int CATEGORIES = YahtzeeRollTable.CATEGORIES;
+    private static final int REROLLS = YahtzeeSolver.REROLLS;
+    
+    // Most points each category can score under the exact-count rules
+    private static final int[] MAX_POINTS = { 5, 10, 15, 20, 25, 30, 28, 29, 25, 30, 40, 50, 30 };
+    
+    private final int maxTarget;
+    private final int[] offsets;
+    private final float[] table;
+    private final ThreadLocal<Workspace> workspace;
+    
+    
+    
+    /**
+     * Lay out an unsolved table; every reachable state gets the probabilities of scoring at
+     * least 1 to length(state) more points, as any larger need is out of reach or of range
+     * 
+     * @param maxTarget Highest target supported
+     */
+    private YahtzeeDistributionSolver(final int maxTarget) {
+        this.maxTarget = maxTarget;
+        this.offsets = new int[YahtzeeOffHeapValues.REACHABLE_STATES + 1];
+        
+        long size = 0;
+        
+        for (int state = 0; state < YahtzeeSolver.STATES; state++)
+            if (YahtzeeSolver.isReachable(state)) {
+                offsets[YahtzeeOffHeapValues.rank(state)] = (int)size;
+                size += length(state);
+            }
+        
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Target " + maxTarget + " needs too large a table");
+        
+        offsets[offsets.length - 1] = (int)size;
+        table = new float[(int)size];
+        workspace = ThreadLocal.withInitial(() -> new Workspace(maxTarget));
+    }
+    
+    
+    
+    /**
+     * Compute, for every reachable state, the probability of scoring at least each number of
+     * further points up to a target when playing to maximize that probability; one layer of
+     * filled-category counts at a time, with the states of each layer spread across the pool
+     * 
+     * @param maxTarget Highest target supported
+     * @param pool Pool to run on
+     * @return Solved distributions
+     */
+    public static YahtzeeDistributionSolver solve(int maxTarget, ForkJoinPool pool) {
+        YahtzeeDistributionSolver solver = new YahtzeeDistributionSolver(maxTarget);
+        
+        for (int layer = CATEGORIES - 1; layer >= 0; layer--)
+            pool.invoke(new LayerTask(solver, YahtzeeSolver.LAYERS[layer], 0, YahtzeeSolver.LAYERS[layer].length));
+        
+        return solver;
+    }
+    
+    
+    
+    /**
+     * Compute the distributions on a dedicated pool
+     * 
+     * @param maxTarget Highest target supported
+     * @param threads Number of worker threads
+     * @return Solved distributions
+     */
+    public static YahtzeeDistributionSolver solve(int maxTarget, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        
+        try {
+            return solve(maxTarget, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    
+    
+    /**
+     * @return Highest target supported
+     */
+    public int getMaxTarget() { return maxTarget; }
+    
+    
+    
+    /**
+     * @return Heap bytes held by the distributions and their index
+     */
+    public long getMemoryBytes() { return 4L * table.length + 4L * offsets.length; }
+    
+    
+    
+    /**
+     * Get the probability of scoring at least some number of further points from the start of a turn
+     * 
+     * @param state Reachable state index
+     * @param need Further points needed, at most the highest target
+     * @return Probability under the policy maximizing it
+     */
+    public double getProbability(int state, int need) {
+        checkNeed(need);
+        return probability(state, need);
+    }
+    
+    
+    
+    /**
+     * Get the probability of scoring at least some number of further points from a roll, not
+     * counting the Yahtzee bonus already awarded for the roll itself
+     * 
+     * @param state Reachable state index
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @param need Further points needed, at most the highest target
+     * @return Probability under the policy maximizing it
+     */
+    public double getProbability(int state, int[] roll, int rerolls, int need) {
+        checkNeed(need);
+        
+        int length = length(state);
+        
+        if (need <= 0 || need > length)
+            return (need <= 0 ? 1 : 0);
+        
+        Workspace ws = workspace.get();
+        int index = YahtzeeRollTable.indexOf(roll), stride = length + 1;
+        
+        evaluate(state, ws);
+        
+        double best = ws.score[index * stride + need];
+        
+        if (rerolls > 0) {
+            double[] keeps = ws.keeps[rerolls - 1];
+            
+            for (int i = YahtzeeKeepTable.subkeepStart(index); i < YahtzeeKeepTable.subkeepEnd(index); i++)
+                best = Math.max(best, keeps[YahtzeeKeepTable.subkeep(i) * stride + need]);
+        }
+        
+        return best;
+    }
+    
+    
+    
+    /**
+     * Get the move that maximizes the probability of scoring at least some number of further points
+     * 
+     * @param state Reachable state index
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @param need Further points needed, at most the highest target
+     * @return Category index, or YahtzeeSolver.KEEP with a mask over roll positions of the dice to keep
+     */
+    public int getBestMove(int state, int[] roll, int rerolls, int need) {
+        checkNeed(need);
+        
+        Workspace ws = workspace.get();
+        int index = YahtzeeRollTable.indexOf(roll);
+        int n = Math.max(0, Math.min(need, length(state))), stride = length(state) + 1;
+        
+        evaluate(state, ws);
+        
+        // Best category at this need
+        int move = YahtzeeSolver.forcedCategory(state, index);
+        
+        if (move == -1) {
+            double best = -1;
+            
+            for (int c = 0; c < CATEGORIES; c++)
+                if ((YahtzeeSolver.filled(state) & (1 << c)) == 0) {
+                    int points = YahtzeeRollTable.score(index, c);
+                    double value = probability(YahtzeeSolver.successor(state, c, points), n - points - YahtzeeSolver.lowerBonusFor(state, c, points));
+                    
+                    if (value > best) {
+                        best = value;
+                        move = c;
+                    }
+                }
+        }
+        
+        if (rerolls == 0)
+            return move;
+        
+        // Any keep that does strictly better
+        double[] keeps = ws.keeps[rerolls - 1];
+        double best = ws.score[index * stride + n];
+        
+        for (int i = YahtzeeKeepTable.subkeepStart(index); i < YahtzeeKeepTable.subkeepEnd(index); i++)
+            if (keeps[YahtzeeKeepTable.subkeep(i) * stride + n] > best) {
+                best = keeps[YahtzeeKeepTable.subkeep(i) * stride + n];
+                move = YahtzeeSolver.KEEP | YahtzeeKeepTable.subkeepMask(i);
+            }
+        
+        if (YahtzeeSolver.isKeep(move))
+            return YahtzeeSolver.KEEP | YahtzeeKeepTable.toPositionMask(roll, YahtzeeSolver.keepMask(move));
+        
+        return move;
+    }
+    
+    
+    
+    /**
+     * Bound the further points a state can still score, bonuses included
+     * 
+     * @param state State index
+     * @return At least the highest further score
+     */
+    static int maxFuture(int state) {
+        int filled = YahtzeeSolver.filled(state), open = CATEGORIES - Integer.bitCount(filled), upper = 0, points = 0;
+        
+        for (int c = 0; c < CATEGORIES; c++)
+            if ((filled & (1 << c)) == 0) {
+                points += MAX_POINTS[c];
+                upper += (c < 6 ? MAX_POINTS[c] : 0);
+            }
+        
+        if (YahtzeeSolver.lowerSubtotal(state) < YahtzeeSolver.LOWER_BONUS_THRESHOLD
+                && YahtzeeSolver.lowerSubtotal(state) + upper >= YahtzeeSolver.LOWER_BONUS_THRESHOLD)
+            points += YahtzeeSolver.LOWER_BONUS;
+        
+        // Every roll of every later turn may be a bonus Yahtzee
+        if (YahtzeeSolver.yahtzeeBonus(state))
+            points += YahtzeeSolver.YAHTZEE_BONUS * (REROLLS + 1) * open;
+        else if ((filled & (1 << YahtzeeSolver.YAHTZEE)) == 0)
+            points += YahtzeeSolver.YAHTZEE_BONUS * (REROLLS + 1) * (open - 1);
+        
+        return points;
+    }
+    
+    
+    
+    /**
+     * @param state State index
+     * @return Number of needs stored for the state
+     */
+    private int length(int state) { return Math.min(maxTarget, maxFuture(state)); }
+    
+    
+    
+    /**
+     * @param need Further points needed
+     * @throws IllegalArgumentException If beyond the highest target
+     */
+    private void checkNeed(int need) {
+        if (need > maxTarget)
+            throw new IllegalArgumentException("Need " + need + " exceeds the highest target " + maxTarget);
+    }
+    
+    
+    
+    /**
+     * @param state Solved state index
+     * @param need Further points needed
+     * @return Probability of scoring them from the start of a turn
+     */
+    private double probability(int state, int need) {
+        if (need <= 0)
+            return 1;
+        
+        int rank = YahtzeeOffHeapValues.rank(state), offset = offsets[rank];
+        
+        return (need > offsets[rank + 1] - offset ? 0 : table[offset + need - 1]);
+    }
+    
+    
+    
+    /**
+     * Solve one state into the table; every successor must be solved
+     * 
+     * @param state Reachable state index
+     * @param ws Scratch buffers
+     */
+    private void solveState(int state, Workspace ws) {
+        if (YahtzeeSolver.filled(state) == YahtzeeSolver.ALL_FILLED)
+            return;
+        
+        evaluate(state, ws);
+        
+        int length = length(state), stride = length + 1, offset = offsets[YahtzeeOffHeapValues.rank(state)];
+        double[] stage = ws.stages[REROLLS];
+        
+        for (int need = 1; need <= length; need++) {
+            double p = 0;
+            
+            for (int roll = 0; roll < ROLLS; roll++)
+                p += YahtzeeRollTable.probability(roll) * stage[roll * stride + need];
+            
+            table[offset + need - 1] = (float)p;
+        }
+    }
+    
+    
+    
+    /**
+     * Evaluate one turn of a state for every need up to its length; each row of the workspace
+     * holds a roll or keep's success probability indexed by need, with need 0 always certain
+     * 
+     * @param state Reachable state index, not all filled
+     * @param ws Scratch buffers, left holding the turn's roll and keep probabilities until another state is evaluated
+     */
+    private void evaluate(int state, Workspace ws) {
+        // Every move of a turn shares the state's rows
+        if (ws.state == state)
+            return;
+        
+        ws.state = state;
+        
+        int filled = YahtzeeSolver.filled(state), length = length(state), stride = length + 1;
+        double[] score = ws.score;
+        
+        // Best category for every final roll and need
+        java.util.Arrays.fill(score, 0, ROLLS * stride, 0);
+        
+        for (int roll = 0; roll < ROLLS; roll++) {
+            int forced = YahtzeeSolver.forcedCategory(state, roll), row = roll * stride;
+            
+            for (int c = 0; c < CATEGORIES; c++)
+                if ((filled & (1 << c)) == 0 && (forced == -1 || forced == c)) {
+                    int points = YahtzeeRollTable.score(roll, c);
+                    int shift = points + YahtzeeSolver.lowerBonusFor(state, c, points);
+                    int next = YahtzeeSolver.successor(state, c, points);
+                    int rank = YahtzeeOffHeapValues.rank(next), from = offsets[rank], nextLength = offsets[rank + 1] - from;
+                    
+                    // Needs covered by the points are certain, then the successor's row, then nothing
+                    int certain = Math.min(length, shift), reachable = Math.min(length, shift + nextLength);
+                    
+                    for (int n = 0; n <= certain; n++)
+                        score[row + n] = 1;
+                    
+                    for (int n = certain + 1, i = from + certain - shift; n <= reachable; n++, i++)
+                        if (table[i] > score[row + n])
+                            score[row + n] = table[i];
+                }
+        }
+        
+        // No rerolls left
+        stage(state, score, null, ws.stages[0], stride);
+        
+        // Each reroll takes the better of scoring now and the best keep
+        for (int rerolls = 1; rerolls <= REROLLS; rerolls++) {
+            double[] keeps = ws.keeps[rerolls - 1], previous = ws.stages[rerolls - 1];
+            
+            expectKeeps(previous, keeps, stride);
+            bestSubkeeps(keeps, ws.best, stride);
+            stage(state, score, ws.best, ws.stages[rerolls], stride);
+        }
+    }
+    
+    
+    
+    /**
+     * Fill a stage: every roll takes the better of its score and its best keep, at the need left
+     * after the roll's Yahtzee bonus
+     * 
+     * @param state State index
+     * @param score Category rows
+     * @param best Best keep rows, or null without rerolls
+     * @param stage Destination rows
+     * @param stride Row length
+     */
+    private static void stage(int state, double[] score, double[] best, double[] stage, int stride) {
+        for (int roll = 0; roll < ROLLS; roll++) {
+            int bonus = YahtzeeSolver.yahtzeeBonusFor(state, roll), row = roll * stride;
+            int keepRow = (best == null ? -1 : YahtzeeKeepTable.ofRoll(roll) * stride);
+            
+            for (int n = 0; n < stride; n++) {
+                int m = n - bonus;
+                
+                if (m <= 0)
+                    stage[row + n] = 1;
+                else
+                    stage[row + n] = (keepRow == -1 || score[row + m] > best[keepRow + m] ? score[row + m] : best[keepRow + m]);
+            }
+        }
+    }
+    
+    
+    
+    /**
+     * Row-wise YahtzeeSolver.expectKeeps
+     */
+    private static void expectKeeps(double[] rolls, double[] keeps, int stride) {
+        int[] add = YahtzeeKeepTable.ADD, rollIndex = YahtzeeKeepTable.ROLL_INDEX;
+        
+        for (int keep = YahtzeeKeepTable.PARTIAL_KEEPS; keep < KEEPS; keep++)
+            System.arraycopy(rolls, rollIndex[keep] * stride, keeps, keep * stride, stride);
+        
+        for (int keep = YahtzeeKeepTable.PARTIAL_KEEPS - 1; keep >= 0; keep--) {
+            int row = keep * stride, i = keep * 6;
+            int a = add[i] * stride, b = add[i+1] * stride, c = add[i+2] * stride;
+            int d = add[i+3] * stride, e = add[i+4] * stride, f = add[i+5] * stride;
+            
+            for (int n = 0; n < stride; n++)
+                keeps[row + n] = (keeps[a + n] + keeps[b + n] + keeps[c + n] + keeps[d + n] + keeps[e + n] + keeps[f + n]) * (1.0 / 6);
+        }
+    }
+    
+    
+    
+    /**
+     * Row-wise YahtzeeSolver.bestSubkeeps
+     */
+    private static void bestSubkeeps(double[] keeps, double[] best, int stride) {
+        int[] start = YahtzeeKeepTable.SMALLER_START, smaller = YahtzeeKeepTable.SMALLER;
+        
+        for (int keep = 0; keep < KEEPS; keep++) {
+            int row = keep * stride;
+            
+            System.arraycopy(keeps, row, best, row, stride);
+            
+            for (int i = start[keep]; i < start[keep + 1]; i++)
+                for (int n = 0, from = smaller[i] * stride; n < stride; n++)
+                    if (best[from + n] > best[row + n])
+                        best[row + n] = best[from + n];
+        }
+    }
+    
+    
+    
+    /**
+     * Scratch rows for evaluating one turn at every need
+     */
+    private static final class Workspace {
+        final double[] score;
+        final double[][] stages = new double[REROLLS + 1][];
+        final double[][] keeps = new double[REROLLS][];
+        final double[] best;
+        int state = -1;
+        
+        Workspace(int maxTarget) {
+            int stride = maxTarget + 1;
+            
+            score = new double[ROLLS * stride];
+            best = new double[KEEPS * stride];
+            
+            for (int i = 0; i < stages.length; i++)
+                stages[i] = new double[ROLLS * stride];
+            
+            for (int i = 0; i < keeps.length; i++)
+                keeps[i] = new double[KEEPS * stride];
+        }
+    }
+    
+    
+    
+    /**
+     * Solves a range of one layer's masks, splitting until the range is small
+     */
+    private static final class LayerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_MASKS = 4;
+        
+        private final YahtzeeDistributionSolver solver;
+        private final int[] masks;
+        private final int from, to;
+        
+        LayerTask(YahtzeeDistributionSolver solver, int[] masks, int from, int to) {
+            this.solver = solver;
+            this.masks = masks;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override protected void compute() {
+            if (to - from > LEAF_MASKS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LayerTask(solver, masks, from, mid), new LayerTask(solver, masks, mid, to));
+                return;
+            }
+            
+            Workspace ws = solver.workspace.get();
+            
+            for (int i = from; i < to; i++)
+                for (int subtotal = 0; subtotal <= YahtzeeSolver.LOWER_BONUS_THRESHOLD; subtotal++)
+                    for (int flag = 0; flag <= 1; flag++) {
+                        int state = YahtzeeSolver.state(masks[i], subtotal, flag == 1);
+                        
+                        if (YahtzeeSolver.isReachable(state))
+                            solver.solveState(state, ws);
+                    }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package yahtzee;
+
+public class YahtzeeGame {
+    /** Turns in a game */
+    public static final int MAX_TURNS = 13;
+    
+    /** Rerolls allowed per turn */
+    public static final int REROLLS_ALLOWED = 2;
+    
+    /** Dice in a roll */
+    public static final int DICE = 5;
+    
+    /** Faces on a die */
+    public static final int DICE_FACES = 6;
+    
+    /** Highest score the rules allow: 387 from the categories and lower bonus, plus a 100 point bonus for each of three rolls in twelve turns */
+    public static final int MAX_SCORE = 387 + 100 * 3 * (MAX_TURNS - 1);
+    
+    static final int YAHTZEE = 11;
+    
+    private static final YahtzeeGameListener[] NO_LISTENERS = {};
+    
+    private final YahtzeeDiceSource dice;
+    private final YahtzeeScorecard scorecard = new YahtzeeScorecard();
+    private final int[] roll = new int[DICE];
+    private int turn, rerolls, yahtzees;
+    private boolean grantedLowerBonus;
+    private YahtzeeGameListener[] listeners = NO_LISTENERS;
+    
+    
+    
+    /**
+     * Start a headless game at its first turn
+     * 
+     * @param dice Dice source, used only by this game
+     */
+    public YahtzeeGame(YahtzeeDiceSource dice) {
+        this.dice = dice;
+        reset();
+    }
+    
+    
+    
+    /**
+     * Wipe the scorecard and start the first turn of a new game
+     */
+    public void reset() {
+        scorecard.reset();
+        turn = 0;
+        yahtzees = 0;
+        grantedLowerBonus = false;
+        
+        advanceTurn();
+    }
+    
+    
+    
+    /**
+     * Be told of every roll and scoring, on the thread playing the game
+     * 
+     * @param listener Listener
+     */
+    public void addListener(YahtzeeGameListener listener) {
+        YahtzeeGameListener[] grown = java.util.Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+    
+    
+    
+    /**
+     * @param listener Listener to stop telling
+     */
+    public void removeListener(YahtzeeGameListener listener) {
+        for (int i = 0; i < listeners.length; i++)
+            if (listeners[i] == listener) {
+                YahtzeeGameListener[] shrunk = new YahtzeeGameListener[listeners.length - 1];
+                
+                System.arraycopy(listeners, 0, shrunk, 0, i);
+                System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+                listeners = shrunk;
+                return;
+            }
+    }
+    
+    
+    
+    /**
+     * Reroll the dice that are not kept
+     * 
+     * @param keepMask Mask over dice positions to keep
+     * @throws IllegalStateException If no rerolls are left or the game is over
+     */
+    public void roll(int keepMask) {
+        if (rerolls == 0 || isOver())
+            throw new IllegalStateException("No rerolls left");
+        
+        rerolls--;
+        rollDice(keepMask);
+    }
+    
+    
+    
+    /**
+     * Score the current roll in a category and move on to the next turn
+     * 
+     * @param category Category index
+     * @return Whether the category was available
+     */
+    public boolean scoreInCategory(int category) {
+        if (!isCategoryAvailable(category))
+            return false;
+        
+        if (category == YAHTZEE && YahtzeeScorecard.eligibleForCategory(YAHTZEE, roll))
+            yahtzees++;
+        
+        // Categories the roll is not eligible for are filled with zero
+        if (scorecard.scoreInCategory(category, roll) == 1)
+            scorecard.scratchCategory(category);
+        
+        // Lower section bonus
+        if (scorecard.getLowerScore() >= 63 && !grantedLowerBonus) {
+            grantedLowerBonus = true;
+            scorecard.incrementBonus(50);
+        }
+        
+        for (YahtzeeGameListener listener : listeners)
+            listener.scored(this, category);
+        
+        advanceTurn();
+        return true;
+    }
+    
+    
+    
+    /**
+     * Play a move in the encoding used by YahtzeeSolver and YahtzeePlayer
+     * 
+     * @param move Category index, or YahtzeeSolver.KEEP with a mask of dice to keep
+     * @return Whether the move was legal
+     */
+    public boolean play(int move) {
+        if (!YahtzeeSolver.isKeep(move))
+            return scoreInCategory(move);
+        
+        if (rerolls == 0 || isOver())
+            return false;
+        
+        roll(YahtzeeSolver.keepMask(move));
+        return true;
+    }
+    
+    
+    
+    /**
+     * Check whether the current roll may be scored in a category; a bonus Yahtzee must go in its
+     * matching lower category while that is open
+     * 
+     * @param category Category index
+     * @return Availability
+     */
+    public boolean isCategoryAvailable(int category) {
+        if (isOver() || scorecard.getCategoryScore(category) != -1)
+            return false;
+        
+        if (yahtzees > 0 && YahtzeeScorecard.eligibleForCategory(YAHTZEE, roll) && scorecard.getCategoryScore(roll[0] - 1) == -1)
+            return category == roll[0] - 1;
+        
+        return true;
+    }
+    
+    
+    
+    /**
+     * @return Whether all turns have been played
+     */
+    public boolean isOver() { return turn > MAX_TURNS; }
+    
+    
+    
+    /**
+     * @return Current dice, owned by the game
+     */
+    public int[] getRoll() { return roll; }
+    
+    
+    
+    /**
+     * @return Scorecard, owned by the game
+     */
+    public YahtzeeScorecard getScorecard() { return scorecard; }
+    
+    
+    
+    /**
+     * @return Current turn, MAX_TURNS + 1 once the game is over
+     */
+    public int getTurn() { return turn; }
+    
+    
+    
+    /**
+     * @return Rerolls left this turn
+     */
+    public int getRerolls() { return rerolls; }
+    
+    
+    
+    /**
+     * @return Yahtzees scored in the Yahtzee category
+     */
+    public int getYahtzees() { return yahtzees; }
+    
+    
+    
+    /**
+     * @return Whether the lower section bonus has been granted
+     */
+    public boolean isGrantedLowerBonus() { return grantedLowerBonus; }
+    
+    
+    
+    /**
+     * @return Solver state index at the current turn
+     */
+    public int getState() { return YahtzeeSolver.stateOf(scorecard); }
+    
+    
+    
+    /**
+     * @return Scorecard packed by YahtzeePackedState
+     */
+    public long getPackedState() { return YahtzeePackedState.pack(scorecard); }
+    
+    
+    
+    /**
+     * Put the game back in a saved state without rolling; scorecard listeners see the restored
+     * scores, game listeners see nothing
+     * 
+     * @param categories Score of each category, -1 for open
+     * @param bonus Bonus score
+     * @param roll Current dice
+     * @param turn Current turn, MAX_TURNS + 1 once the game is over
+     * @param rerolls Rerolls left this turn
+     * @param yahtzees Yahtzees scored in the Yahtzee category
+     * @param grantedLowerBonus Whether the lower section bonus has been granted
+     */
+    void restore(int[] categories, int bonus, int[] roll, int turn, int rerolls, int yahtzees, boolean grantedLowerBonus) {
+        for (int c = 0; c < categories.length; c++)
+            scorecard.setCategoryScore(c, categories[c]);
+        
+        scorecard.setBonusScore(bonus);
+        System.arraycopy(roll, 0, this.roll, 0, DICE);
+        this.turn = turn;
+        this.rerolls = rerolls;
+        this.yahtzees = yahtzees;
+        this.grantedLowerBonus = grantedLowerBonus;
+    }
+    
+    
+    
+    /**
+     * Increment turns by 1 and roll all dice for the new turn
+     */
+    private void advanceTurn() {
+        turn++;
+        
+        if (isOver())
+            return;
+        
+        rerolls = REROLLS_ALLOWED;
+        rollDice(0);
+    }
+    
+    
+    
+    /**
+     * Roll the dice that are not kept and award the multiple Yahtzee bonus
+     * 
+     * @param keepMask Mask over dice positions to keep
+     */
+    private void rollDice(int keepMask) {
+        dice.roll(roll, keepMask);
+        
+        // Multiple yahtzees bonus
+        if (yahtzees > 0 && YahtzeeScorecard.eligibleForCategory(YAHTZEE, roll))
+            scorecard.incrementBonus(100);
+        
+        for (YahtzeeGameListener listener : listeners)
+            listener.rolled(this, keepMask);
+    }
+}
@@ -0,0 +1,22 @@
+package yahtzee;
+
+public interface YahtzeeGameListener {
+    /**
+     * Called after dice are rolled and any multiple Yahtzee bonus is awarded; the first roll of a
+     * turn has all rerolls left and keeps no dice
+     * 
+     * @param game Game, showing the new roll
+     * @param keepMask Mask over dice positions that were kept
+     */
+    void rolled(YahtzeeGame game, int keepMask);
+    
+    
+    
+    /**
+     * Called after a roll is scored, before the next turn's dice are rolled
+     * 
+     * @param game Game, still at the turn that was scored
+     * @param category Category index
+     */
+    void scored(YahtzeeGame game, int category);
+}
@@ -0,0 +1,48 @@
+package yahtzee;
+
+public class YahtzeeGreedyPlayer implements YahtzeePlayer {
+    private final int[] scores = new int[YahtzeeRollTable.CATEGORIES];
+    private final int[] counts = new int[YahtzeeGame.DICE_FACES + 1];
+    
+    
+    
+    /**
+     * Keep the most common face while rerolls last, then take the highest scoring available category
+     * 
+     * @param game Game, not over
+     * @return Move
+     */
+    @Override public int chooseMove(YahtzeeGame game) {
+        int[] roll = game.getRoll();
+        
+        if (game.getRerolls() > 0 && !YahtzeeScorecard.eligibleForCategory(YahtzeeGame.YAHTZEE, roll)) {
+            java.util.Arrays.fill(counts, 0);
+            
+            for (int i : roll)
+                counts[i]++;
+            
+            int keep = 1;
+            
+            for (int face = 2; face <= YahtzeeGame.DICE_FACES; face++)
+                if (counts[face] >= counts[keep])
+                    keep = face;
+            
+            int mask = 0;
+            
+            for (int i = 0; i < roll.length; i++)
+                if (roll[i] == keep)
+                    mask |= 1 << i;
+            
+            return YahtzeeSolver.KEEP | mask;
+        }
+        
+        game.getScorecard().getPotentialCategoryScores(roll, scores);
+        int best = -1;
+        
+        for (int category = 0; category < YahtzeeRollTable.CATEGORIES; category++)
+            if (game.isCategoryAvailable(category) && (best == -1 || scores[category] > scores[best]))
+                best = category;
+        
+        return best;
+    }
+}
@@ -0,0 +1,482 @@
+package yahtzee;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public final class YahtzeeHighscoreJournal implements Closeable {
+    /** File magic, "YHSJ" */
+    static final int MAGIC = 0x5948534A;
+    
+    /** Format version; bump whenever the header or record layout changes */
+    static final int VERSION = 2;
+    
+    /** Header size: magic, version and generation; records start here */
+    static final int HEADER_BYTES = 16;
+    
+    /** Record prefix: payload length, then CRC-32 of the payload */
+    static final int RECORD_HEADER_BYTES = 8;
+    
+    /** Payload before the name: score, timestamp and seed */
+    static final int FIXED_PAYLOAD_BYTES = 4 + 8 + 8;
+    
+    /** Longest player name, in UTF-8 bytes */
+    public static final int MAX_NAME_BYTES = 1024;
+    
+    /** Longest payload: the fixed fields and an encoded name */
+    static final int MAX_PAYLOAD_BYTES = FIXED_PAYLOAD_BYTES + MAX_NAME_BYTES;
+    
+    // Version 1 had no generation and only the score before the name
+    private static final int V1_HEADER_BYTES = 8;
+    private static final int V1_FIXED_PAYLOAD_BYTES = 4;
+    
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    private final File file;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private long records, generation;
+    private int version;
+    
+    
+    
+    private YahtzeeHighscoreJournal(File file) { this.file = file; }
+    
+    
+    
+    /**
+     * Open a journal for appending, replaying its records first; a torn or corrupt tail left by an
+     * interrupted append is cut off, and older journals and name-score text files are converted
+     * 
+     * @param file Journal file, created if it does not exist
+     * @param highscores Destination for the scores read
+     * @return Open journal
+     * @throws IOException If the file cannot be created, read or repaired
+     */
+    public static YahtzeeHighscoreJournal open(File file, Collection<YahtzeeScore> highscores) throws IOException {
+        YahtzeeHighscoreJournal journal = new YahtzeeHighscoreJournal(file);
+        
+        // A new journal is created whole, so a crash never leaves a torn header
+        if (isBlank(file))
+            write(file, Collections.<YahtzeeScore>emptyList(), 0);
+        else if (isLegacy(file)) {
+            List<YahtzeeScore> legacy = new ArrayList<>();
+            YahtzeeHighscores.load(file, legacy);
+            
+            write(file, legacy, 0);
+        }
+        
+        journal.openChannel();
+        
+        try {
+            List<YahtzeeScore> read = new ArrayList<>();
+            journal.replay(read);
+            
+            if (journal.version < VERSION)
+                journal.compact(read);
+            
+            highscores.addAll(read);
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        
+        return journal;
+    }
+    
+    
+    
+    /**
+     * Append one score; the record is written in a single write and forced to disk before returning
+     * 
+     * @param score Score to add
+     * @throws IOException If the record cannot be written
+     */
+    public void append(YahtzeeScore score) throws IOException { append(Collections.singletonList(score)); }
+    
+    
+    
+    /**
+     * Append a batch of scores in a single write, forced to disk once; a crash may keep a prefix of
+     * the batch, never a partial record
+     * 
+     * @param scores Scores to add
+     * @throws IOException If the records cannot be written
+     */
+    public synchronized void append(Collection<YahtzeeScore> scores) throws IOException {
+        List<ByteBuffer> encoded = new ArrayList<>(scores.size());
+        int bytes = 0;
+        
+        for (YahtzeeScore score : scores) {
+            ByteBuffer record = encode(score);
+            
+            encoded.add(record);
+            bytes += record.remaining();
+        }
+        
+        ByteBuffer batch = ByteBuffer.allocate(bytes);
+        
+        for (ByteBuffer record : encoded)
+            batch.put(record);
+        
+        batch.flip();
+        channel.position(channel.size());
+        
+        while (batch.hasRemaining())
+            channel.write(batch);
+        
+        channel.force(false);
+        records += scores.size();
+    }
+    
+    
+    
+    /**
+     * Replace the journal with only the given scores, atomically; a crash leaves either the old
+     * or the new journal in place
+     * 
+     * @param highscores Scores to keep
+     * @throws IOException If the new journal cannot be written
+     */
+    public synchronized void compact(Iterable<YahtzeeScore> highscores) throws IOException { compact(highscores, generation); }
+    
+    
+    
+    /**
+     * Replace the journal with only the given scores and a new generation, atomically
+     * 
+     * @param highscores Scores to keep
+     * @param generation Generation of the snapshot the journal continues from
+     * @throws IOException If the new journal cannot be written
+     */
+    public synchronized void compact(Iterable<YahtzeeScore> highscores, long generation) throws IOException {
+        closeChannel();
+        records = write(file, highscores, generation);
+        this.generation = generation;
+        version = VERSION;
+        openChannel();
+    }
+    
+    
+    
+    /**
+     * @return Records in the journal, including any a compaction would drop
+     */
+    public synchronized long getRecords() { return records; }
+    
+    
+    
+    /**
+     * Get the generation of the snapshot this journal continues from; the journal only holds games
+     * that are not in that snapshot, see YahtzeeHighscoreStore
+     * 
+     * @return Generation, 0 for a journal that holds every game
+     */
+    public synchronized long getGeneration() { return generation; }
+    
+    
+    
+    /**
+     * Close the journal file
+     * 
+     * @throws IOException If the file cannot be closed
+     */
+    @Override public synchronized void close() throws IOException { closeChannel(); }
+    
+    
+    
+    /**
+     * Read every intact record from the start, then truncate the file after the last one
+     * 
+     * @param highscores Destination for the scores read
+     * @throws IOException If the file cannot be read or truncated
+     */
+    private void replay(Collection<YahtzeeScore> highscores) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = read(0, V1_HEADER_BYTES);
+        
+        if (header == null || header.getInt() != MAGIC)
+            throw new IOException("Not a highscore journal: " + file);
+        
+        version = header.getInt();
+        long position = V1_HEADER_BYTES;
+        
+        if (version == VERSION) {
+            ByteBuffer rest = read(V1_HEADER_BYTES, HEADER_BYTES - V1_HEADER_BYTES);
+            
+            if (rest == null)
+                throw new IOException("Truncated highscore journal header: " + file);
+            
+            generation = rest.getLong();
+            position = HEADER_BYTES;
+        }
+        else if (version != 1)
+            throw new IOException("Unsupported highscore journal version: " + file);
+        
+        int fixed = (version == 1 ? V1_FIXED_PAYLOAD_BYTES : FIXED_PAYLOAD_BYTES);
+        
+        while (true) {
+            ByteBuffer prefix = read(position, RECORD_HEADER_BYTES);
+            
+            if (prefix == null)
+                break;
+            
+            int length = prefix.getInt();
+            long crc = prefix.getInt() & 0xFFFFFFFFL;
+            
+            if (length < fixed || length > MAX_PAYLOAD_BYTES)
+                break;
+            
+            ByteBuffer payload = read(position + RECORD_HEADER_BYTES, length);
+            
+            if (payload == null || checksum(payload) != crc)
+                break;
+            
+            highscores.add(decode(payload, version));
+            records++;
+            position += RECORD_HEADER_BYTES + length;
+        }
+        
+        // Everything after the last intact record is a torn append
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+    }
+    
+    
+    
+    /**
+     * @param position File offset
+     * @param length Bytes to read
+     * @return Buffer of exactly that many bytes, or null if the file ends first
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ORDER);
+        
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                return null;
+        
+        buffer.flip();
+        return buffer;
+    }
+    
+    
+    
+    private void openChannel() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+    
+    
+    
+    private void closeChannel() throws IOException {
+        if (raf != null)
+            raf.close();
+        
+        raf = null;
+        channel = null;
+    }
+    
+    
+    
+    /**
+     * Write a fresh journal to a temp file and move it over the old one
+     * 
+     * @param file Journal file
+     * @param highscores Scores to write
+     * @param generation Generation of the snapshot the journal continues from
+     * @return Records written
+     * @throws IOException If the file cannot be written
+     */
+    private static long write(File file, Iterable<YahtzeeScore> highscores, long generation) throws IOException {
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        long records = 0;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            
+            ByteBuffer header = header(generation);
+            
+            while (header.hasRemaining())
+                channel.write(header);
+            
+            for (YahtzeeScore score : highscores) {
+                ByteBuffer record = encode(score);
+                
+                while (record.hasRemaining())
+                    channel.write(record);
+                
+                records++;
+            }
+            
+            channel.force(true);
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return records;
+    }
+    
+    
+    
+    /**
+     * @param file Journal file
+     * @return Whether it holds no scores: it is missing, or is no longer than a header and holds
+     *         only zeros or part of a new header
+     */
+    private static boolean isBlank(File file) throws IOException {
+        if (!file.exists())
+            return true;
+        if (file.length() > HEADER_BYTES)
+            return false;
+        
+        byte[] bytes = Files.readAllBytes(file.toPath()), fresh = header(0).array();
+        boolean zeros = true, prefix = (bytes.length < HEADER_BYTES);
+        
+        for (int i = 0; i < bytes.length; i++) {
+            zeros &= (bytes[i] == 0);
+            prefix &= (bytes[i] == fresh[i]);
+        }
+        
+        return (zeros || prefix);
+    }
+    
+    
+    
+    /**
+     * Tell a name-score text file from a journal; anything else, such as a journal with a damaged
+     * header, is left untouched rather than converted
+     * 
+     * @param file Highscore file
+     * @return Whether the file holds name-score text
+     * @throws IOException If the file is neither a journal nor name-score text
+     */
+    private static boolean isLegacy(File file) throws IOException {
+        if (file.length() == 0)
+            return false;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() >= 4 && Integer.reverseBytes(raf.readInt()) == MAGIC)
+                return false;
+        }
+        
+        // Same charset as YahtzeeHighscores, which wrote the text
+        String text;
+        
+        try {
+            text = Charset.defaultCharset().newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath()))).toString();
+        } catch (CharacterCodingException e) {
+            throw new IOException("Not a highscore journal: " + file, e);
+        }
+        
+        for (String line : text.split("\\r?\\n")) {
+            int split = line.lastIndexOf('-');
+            
+            if (!line.isEmpty() && (split == -1 || !line.substring(split + 1).trim().matches("\\d{1,9}") || hasControl(line)))
+                throw new IOException("Not a highscore journal: " + file);
+        }
+        
+        return true;
+    }
+    
+    
+    
+    /**
+     * @param line Line of text
+     * @return Whether it holds a control character, which name-score text never does
+     */
+    private static boolean hasControl(String line) {
+        for (int i = 0; i < line.length(); i++)
+            if (Character.isISOControl(line.charAt(i)) && line.charAt(i) != '\t')
+                return true;
+        
+        return false;
+    }
+    
+    
+    
+    /**
+     * @param generation Generation of the snapshot the journal continues from
+     * @return Current header, ready to write
+     */
+    private static ByteBuffer header(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+        
+        return header;
+    }
+    
+    
+    
+    /**
+     * @param score Score
+     * @return Complete record, ready to write
+     * @throws IllegalArgumentException If the name is too long to store
+     */
+    private static ByteBuffer encode(YahtzeeScore score) {
+        String name = score.getPlayerName();
+        byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        int length = FIXED_PAYLOAD_BYTES + bytes.length;
+        
+        if (length > MAX_PAYLOAD_BYTES)
+            throw new IllegalArgumentException("Player name too long: " + name);
+        
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length).order(ORDER);
+        record.position(RECORD_HEADER_BYTES);
+        record.putInt(score.getScore()).putLong(score.getTimestamp()).putLong(score.getSeed()).put(bytes);
+        
+        record.position(RECORD_HEADER_BYTES);
+        int crc = (int)checksum(record);
+        
+        record.clear();
+        record.putInt(length).putInt(crc);
+        record.clear();
+        
+        return record;
+    }
+    
+    
+    
+    /**
+     * @param payload Record payload
+     * @param version Journal version it was written by
+     * @return Score it holds
+     */
+    private static YahtzeeScore decode(ByteBuffer payload, int version) {
+        int score = payload.getInt();
+        long timestamp = (version == 1 ? 0 : payload.getLong()), seed = (version == 1 ? 0 : payload.getLong());
+        String name = new String(payload.array(), payload.position(), payload.remaining(), StandardCharsets.UTF_8);
+        
+        return new YahtzeeScore(name, score, timestamp, seed);
+    }
+    
+    
+    
+    /**
+     * @param buffer Bytes from the position to the limit, position unchanged
+     * @return CRC-32 of the bytes
+     */
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        
+        return crc.getValue();
+    }
+}
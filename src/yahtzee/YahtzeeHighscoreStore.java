@@ -0,0 +1,414 @@
+package yahtzee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public final class YahtzeeHighscoreStore {
+    /** Default location of the highscore snapshot */
+    public static final String DEFAULT_FILE_NAME = "highscores.idx";
+    
+    /** File magic, "YHSI" */
+    static final int MAGIC = 0x59485349;
+    
+    /** Format version; bump whenever the header or section layout changes */
+    static final int VERSION = 1;
+    
+    /** Header size, sections start here */
+    static final int HEADER_BYTES = 64;
+    
+    /** Record size: player id, score, timestamp and seed */
+    static final int RECORD_BYTES = 4 + 4 + 8 + 8;
+    
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    // Best first; equal scores keep the earlier game first
+    private static final Comparator<YahtzeeScore> ORDERING = new Comparator<YahtzeeScore>() {
+        @Override public int compare(YahtzeeScore a, YahtzeeScore b) {
+            return (a.getScore() != b.getScore() ? Integer.compare(b.getScore(), a.getScore()) : Long.compare(a.getTimestamp(), b.getTimestamp()));
+        }
+    };
+    
+    private final ByteBuffer map;
+    private final long generation;
+    private final int records, players;
+    private final int playerStart, playerRecords, nameOrder, nameStart, names;
+    
+    
+    
+    private YahtzeeHighscoreStore(ByteBuffer map) {
+        this.map = map;
+        this.generation = map.getLong(8);
+        this.records = map.getInt(16);
+        this.players = map.getInt(20);
+        
+        // Sections follow each other in this order
+        playerStart = HEADER_BYTES + records * RECORD_BYTES;
+        playerRecords = playerStart + 4 * (players + 1);
+        nameOrder = playerRecords + 4 * records;
+        nameStart = nameOrder + 4 * players;
+        names = nameStart + 4 * (players + 1);
+    }
+    
+    
+    
+    /**
+     * Map a snapshot; only the header is read, records and names are read as they are queried
+     * 
+     * @param file Snapshot file
+     * @param verify Whether to check the checksum, which reads the whole file once
+     * @return Mapped snapshot
+     * @throws IOException If the file is missing, from another version, truncated or fails its checksum
+     */
+    public static YahtzeeHighscoreStore load(File file, boolean verify) throws IOException {
+        MappedByteBuffer map;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Highscore snapshot " + file + " has the wrong size");
+            
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        map.order(ORDER);
+        
+        if (map.getInt(0) != MAGIC)
+            throw new IOException("Not a highscore snapshot: " + file);
+        if (map.getInt(4) != VERSION)
+            throw new IOException("Unsupported highscore snapshot version: " + file);
+        
+        YahtzeeHighscoreStore store = new YahtzeeHighscoreStore(map);
+        
+        if (store.names + map.getInt(24) != map.capacity())
+            throw new IOException("Highscore snapshot " + file + " has the wrong size");
+        
+        map.position(HEADER_BYTES);
+        
+        if (verify && checksum(map.slice()) != map.getLong(32))
+            throw new IOException("Corrupt highscore snapshot: " + file);
+        
+        return store;
+    }
+    
+    
+    
+    /**
+     * Write a snapshot, replacing any existing file atomically
+     * 
+     * @param file Snapshot file
+     * @param generation Generation of the snapshot, see YahtzeeHighscoreJournal.getGeneration
+     * @param scores Games to store
+     * @return Mapped snapshot
+     * @throws IOException If the file cannot be written or mapped
+     */
+    public static YahtzeeHighscoreStore write(File file, long generation, Collection<YahtzeeScore> scores) throws IOException {
+        List<YahtzeeScore> sorted = new ArrayList<>(scores);
+        Collections.sort(sorted, ORDERING);
+        
+        // Intern player names, ids in order of each player's best game
+        Map<String, Integer> ids = new HashMap<>();
+        List<byte[]> nameBytes = new ArrayList<>();
+        int[] player = new int[sorted.size()];
+        int nameTotal = 0;
+        
+        for (int i = 0; i < sorted.size(); i++) {
+            String name = sorted.get(i).getPlayerName();
+            String key = (name == null ? "" : name);
+            Integer id = ids.get(key);
+            
+            if (id == null) {
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                
+                ids.put(key, id = nameBytes.size());
+                nameBytes.add(bytes);
+                nameTotal += bytes.length;
+            }
+            
+            player[i] = id;
+        }
+        
+        int records = sorted.size(), players = nameBytes.size();
+        long size = HEADER_BYTES + (long)records * RECORD_BYTES + 4L * (players + 1) + 4L * records + 4L * players + 4L * (players + 1) + nameTotal;
+        
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Too many highscores for one snapshot: " + records);
+        
+        ByteBuffer buffer = ByteBuffer.allocate((int)size).order(ORDER);
+        buffer.position(HEADER_BYTES);
+        
+        for (int i = 0; i < records; i++) {
+            YahtzeeScore score = sorted.get(i);
+            buffer.putInt(player[i]).putInt(score.getScore()).putLong(score.getTimestamp()).putLong(score.getSeed());
+        }
+        
+        // Each player's records, best first, grouped by counting
+        int[] start = new int[players + 1];
+        
+        for (int id : player)
+            start[id + 1]++;
+        for (int id = 0; id < players; id++)
+            start[id + 1] += start[id];
+        
+        int[] grouped = new int[records], next = start.clone();
+        
+        for (int i = 0; i < records; i++)
+            grouped[next[player[i]]++] = i;
+        
+        for (int value : start)
+            buffer.putInt(value);
+        for (int value : grouped)
+            buffer.putInt(value);
+        
+        // Player ids by name, for binary search
+        List<Map.Entry<String, Integer>> byName = new ArrayList<>(ids.entrySet());
+        Collections.sort(byName, Map.Entry.<String, Integer>comparingByKey());
+        
+        for (Map.Entry<String, Integer> entry : byName)
+            buffer.putInt(entry.getValue());
+        
+        for (int id = 0, offset = 0; id <= players; id++) {
+            buffer.putInt(offset);
+            
+            if (id < players)
+                offset += nameBytes.get(id).length;
+        }
+        
+        for (byte[] bytes : nameBytes)
+            buffer.put(bytes);
+        
+        buffer.position(HEADER_BYTES);
+        long crc = checksum(buffer.slice());
+        
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(generation).putInt(records).putInt(players).putInt(nameTotal).putInt(0).putLong(crc);
+        buffer.clear();
+        
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            
+            channel.force(true);
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return load(file, false);
+    }
+    
+    
+    
+    /**
+     * Write the next generation of a snapshot: every game in the old one plus the journaled games;
+     * the journal should then be emptied with compact(empty, generation of the result)
+     * 
+     * @param file Snapshot file
+     * @param base Current snapshot, or null for none
+     * @param journaled Games journaled since the current snapshot
+     * @return Mapped new snapshot
+     * @throws IOException If the file cannot be written or mapped
+     */
+    public static YahtzeeHighscoreStore fold(File file, YahtzeeHighscoreStore base, Collection<YahtzeeScore> journaled) throws IOException {
+        List<YahtzeeScore> scores = (base == null ? new ArrayList<YahtzeeScore>() : base.getTop(base.size()));
+        scores.addAll(journaled);
+        
+        return write(file, (base == null ? 0 : base.getGeneration()) + 1, scores);
+    }
+    
+    
+    
+    /**
+     * @return Generation of the snapshot
+     */
+    public long getGeneration() { return generation; }
+    
+    
+    
+    /**
+     * @return Games stored
+     */
+    public int size() { return records; }
+    
+    
+    
+    /**
+     * @return Distinct players
+     */
+    public int getPlayers() { return players; }
+    
+    
+    
+    /**
+     * @param rank Rank from 0, the best game
+     * @return Game at that rank
+     */
+    public YahtzeeScore get(int rank) {
+        if (rank < 0 || rank >= records)
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + records);
+        
+        int record = HEADER_BYTES + rank * RECORD_BYTES;
+        return new YahtzeeScore(name(map.getInt(record)), map.getInt(record + 4), map.getLong(record + 8), map.getLong(record + 16));
+    }
+    
+    
+    
+    /**
+     * @param rank Rank from 0, the best game
+     * @return Score of the game at that rank
+     */
+    public int getScore(int rank) {
+        if (rank < 0 || rank >= records)
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + records);
+        
+        return map.getInt(HEADER_BYTES + rank * RECORD_BYTES + 4);
+    }
+    
+    
+    
+    /**
+     * Get the best games; only their records are read
+     * 
+     * @param k Number of games
+     * @return Up to k games, best first
+     */
+    public List<YahtzeeScore> getTop(int k) { return getRanks(0, Math.min(Math.max(0, k), records)); }
+    
+    
+    
+    /**
+     * @param score Final score
+     * @return Number of games that scored at least that much, by binary search
+     */
+    public int countAtLeast(int score) {
+        int low = 0, high = records;
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            
+            if (getScore(mid) >= score)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        
+        return low;
+    }
+    
+    
+    
+    /**
+     * @param min Lowest score, inclusive
+     * @param max Highest score, inclusive
+     * @return Games scoring within the range, best first
+     */
+    public List<YahtzeeScore> getRange(int min, int max) {
+        int from = (max == Integer.MAX_VALUE ? 0 : countAtLeast(max + 1));
+        return getRanks(from, Math.max(from, countAtLeast(min)));
+    }
+    
+    
+    
+    /**
+     * @param playerName Player name
+     * @return The player's games, best first; empty if the player has none
+     */
+    public List<YahtzeeScore> getPlayerScores(String playerName) {
+        List<YahtzeeScore> scores = new ArrayList<>();
+        int id = findPlayer(playerName == null ? "" : playerName);
+        
+        if (id != -1)
+            for (int i = map.getInt(playerStart + 4 * id), end = map.getInt(playerStart + 4 * (id + 1)); i < end; i++)
+                scores.add(get(map.getInt(playerRecords + 4 * i)));
+        
+        return scores;
+    }
+    
+    
+    
+    /**
+     * @param from First rank, inclusive
+     * @param to Last rank, exclusive
+     * @return Games at those ranks
+     */
+    private List<YahtzeeScore> getRanks(int from, int to) {
+        List<YahtzeeScore> scores = new ArrayList<>(to - from);
+        
+        for (int rank = from; rank < to; rank++)
+            scores.add(get(rank));
+        
+        return scores;
+    }
+    
+    
+    
+    /**
+     * @param playerName Player name
+     * @return Player id, or -1 if the name is not stored
+     */
+    private int findPlayer(String playerName) {
+        int low = 0, high = players - 1;
+        
+        while (low <= high) {
+            int mid = (low + high) >>> 1, id = map.getInt(nameOrder + 4 * mid);
+            int compare = name(id).compareTo(playerName);
+            
+            if (compare == 0)
+                return id;
+            if (compare < 0)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        
+        return -1;
+    }
+    
+    
+    
+    /**
+     * @param id Player id
+     * @return Player name
+     */
+    private String name(int id) {
+        int from = map.getInt(nameStart + 4 * id), to = map.getInt(nameStart + 4 * (id + 1));
+        byte[] bytes = new byte[to - from];
+        
+        ByteBuffer view = map.duplicate();
+        view.position(names + from);
+        view.get(bytes);
+        
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    
+    
+    /**
+     * @param buffer Bytes from the position to the limit, position unchanged
+     * @return CRC-32 of the bytes
+     */
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        
+        return crc.getValue();
+    }
+}
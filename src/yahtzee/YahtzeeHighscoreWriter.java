@@ -0,0 +1,283 @@
+package yahtzee;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public final class YahtzeeHighscoreWriter implements Closeable {
+    /** Most records appended in one write */
+    static final int MAX_BATCH = 4096;
+    
+    /** Most scores and flushes waiting for the writer thread before record() blocks */
+    static final int MAX_QUEUED = 4 * MAX_BATCH;
+    
+    private final File journalFile, storeFile;
+    private final int boardSize, foldRecords;
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>(MAX_QUEUED);
+    private final CompletableFuture<List<YahtzeeScore>> board = new CompletableFuture<>();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private final Thread thread;
+    private boolean closing;
+    
+    // Owned by the writer thread
+    private YahtzeeHighscoreJournal journal;
+    private YahtzeeHighscoreStore store;
+    private final List<YahtzeeScore> journaled = new ArrayList<>();
+    
+    // Set by the writer thread, read by record() to fail fast
+    private volatile IOException failure;
+    
+    
+    
+    /**
+     * Start a writer thread that owns a highscore journal and its snapshot; the files are opened,
+     * repaired and folded on that thread, and scores recorded meanwhile are queued
+     * 
+     * @param journalFile Journal file
+     * @param storeFile Snapshot file
+     * @param boardSize Number of best games to load
+     * @param foldRecords Journaled games that are folded into a new snapshot, which bounds the
+     *        games replayed from the journal on open
+     */
+    public YahtzeeHighscoreWriter(File journalFile, File storeFile, int boardSize, int foldRecords) {
+        this.journalFile = journalFile;
+        this.storeFile = storeFile;
+        this.boardSize = boardSize;
+        this.foldRecords = foldRecords;
+        
+        thread = new Thread(this::run, "Highscore writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    
+    
+    /**
+     * @return Completes with the best games of the snapshot and journal once loaded, or
+     *         exceptionally if the files cannot be read
+     */
+    public CompletableFuture<List<YahtzeeScore>> getBoard() { return board; }
+    
+    
+    
+    /**
+     * Queue a score for writing; only waits for the disk while the queue is full
+     * 
+     * @param score Score to add
+     * @throws IllegalArgumentException If the name is too long to store
+     * @throws IllegalStateException If the writer is closed, a write has failed, or the caller is
+     *         interrupted while the queue is full
+     */
+    public synchronized void record(YahtzeeScore score) {
+        String name = score.getPlayerName();
+        
+        // Checked here, the writer thread cannot report it to the caller
+        if (name != null && name.getBytes(StandardCharsets.UTF_8).length > YahtzeeHighscoreJournal.MAX_NAME_BYTES)
+            throw new IllegalArgumentException("Player name too long: " + name);
+        if (closing)
+            throw new IllegalStateException("Highscore writer is closed");
+        if (failure != null)
+            throw new IllegalStateException("Highscore writer failed: " + failure.getMessage(), failure);
+        
+        put(score);
+    }
+    
+    
+    
+    /**
+     * @return Completes once every score recorded before the call is on disk, or exceptionally if
+     *         a write has failed
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        
+        if (closing)
+            flushed.completeExceptionally(new IllegalStateException("Highscore writer is closed"));
+        else
+            try {
+                put(flushed);
+            } catch (IllegalStateException e) {
+                flushed.completeExceptionally(e);
+            }
+        
+        return flushed;
+    }
+    
+    
+    
+    /**
+     * Write everything queued, then stop the writer thread and close the files; the thread is a
+     * daemon, so call this before exiting, from a shutdown hook if need be
+     * 
+     * @throws IOException If a write failed
+     */
+    @Override public void close() throws IOException {
+        // Nothing can be queued behind the close
+        try {
+            synchronized (this) {
+                if (!closing)
+                    queue.put(closed);
+                
+                closing = true;
+            }
+            
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing highscores", e);
+        }
+        
+        if (failure != null)
+            throw failure;
+    }
+    
+    
+    
+    /**
+     * Writer loop: load, then append each batch of queued scores in one write and one force
+     */
+    private void run() {
+        // Any failure is kept, so the board and every later flush complete exceptionally
+        try {
+            load();
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException("Could not load highscores", e);
+        }
+        
+        if (failure != null)
+            board.completeExceptionally(failure);
+        
+        List<Object> batch = new ArrayList<>();
+        List<YahtzeeScore> scores = new ArrayList<>();
+        boolean done = false;
+        
+        while (!done) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            
+            queue.drainTo(batch, MAX_BATCH - 1);
+            
+            for (Object item : batch)
+                if (item instanceof YahtzeeScore)
+                    scores.add((YahtzeeScore)item);
+            
+            if (!scores.isEmpty() && failure == null)
+                try {
+                    write(scores);
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = new IOException("Could not save highscores", e);
+                }
+            
+            // Flushes complete after the writes queued before them
+            for (Object item : batch)
+                if (item instanceof CompletableFuture) {
+                    CompletableFuture<?> future = (CompletableFuture<?>)item;
+                    
+                    done |= (future == closed);
+                    
+                    if (failure == null)
+                        future.complete(null);
+                    else
+                        future.completeExceptionally(failure);
+                }
+            
+            batch.clear();
+            scores.clear();
+        }
+        
+        try {
+            if (journal != null)
+                journal.close();
+        } catch (IOException e) {
+            if (failure == null)
+                failure = e;
+        }
+    }
+    
+    
+    
+    /**
+     * Open the snapshot and journal, dropping journaled games the snapshot already holds
+     */
+    private void load() throws IOException {
+        List<YahtzeeScore> loaded = new ArrayList<>();
+        
+        store = (storeFile.exists() ? YahtzeeHighscoreStore.load(storeFile, false) : null);
+        journal = YahtzeeHighscoreJournal.open(journalFile, journaled);
+        
+        // A crash between writing a snapshot and emptying the journal leaves its games in both
+        if (store != null && journal.getGeneration() < store.getGeneration()) {
+            journaled.clear();
+            journal.compact(journaled, store.getGeneration());
+        }
+        
+        if (store != null)
+            loaded.addAll(store.getTop(boardSize));
+        
+        loaded.addAll(journaled);
+        Collections.sort(loaded);
+        board.complete(new ArrayList<>(loaded.subList(0, Math.min(boardSize, loaded.size()))));
+        
+        foldIfLong();
+    }
+    
+    
+    
+    /**
+     * Queue an item, waiting while the queue is full
+     * 
+     * @throws IllegalStateException If interrupted while waiting
+     */
+    private void put(Object item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing highscores", e);
+        }
+    }
+    
+    
+    
+    /**
+     * Append a batch, then fold if the journal has grown long
+     */
+    private void write(List<YahtzeeScore> scores) throws IOException {
+        if (journal == null)
+            throw new IOException("Highscores were not loaded");
+        
+        journal.append(scores);
+        journaled.addAll(scores);
+        
+        foldIfLong();
+    }
+    
+    
+    
+    /**
+     * Fold once the journal holds foldRecords games, so opening never replays more than that
+     */
+    private void foldIfLong() throws IOException {
+        if (journaled.size() < foldRecords)
+            return;
+        
+        store = YahtzeeHighscoreStore.fold(storeFile, store, journaled);
+        journaled.clear();
+        journal.compact(journaled, store.getGeneration());
+    }
+}
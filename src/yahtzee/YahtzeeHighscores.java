@@ -0,0 +1,60 @@
+package yahtzee;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import java.util.Collection;
+import java.util.Scanner;
+
+public final class YahtzeeHighscores {
+    private YahtzeeHighscores() {}
+    
+    
+    
+    /**
+     * Read highscores from a file of name-score lines, the format before YahtzeeHighscoreJournal,
+     * creating the file if it does not exist
+     * 
+     * @param file Highscore file
+     * @param highscores Destination for the scores read
+     * @throws IOException If the file cannot be created or read, or holds a line with no score
+     */
+    public static void load(File file, Collection<YahtzeeScore> highscores) throws IOException {
+        file.createNewFile();
+        
+        try (Scanner reader = new Scanner(file)) {
+            // Names may contain '-', scores cannot
+            while (reader.hasNextLine()) {
+                String line = reader.nextLine();
+                int split = line.lastIndexOf('-');
+                
+                if (split != -1)
+                    try {
+                        highscores.add(new YahtzeeScore(line.substring(0, split), Integer.parseInt(line.substring(split + 1).trim())));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Not a name-score line in " + file + ": " + line, e);
+                    }
+            }
+        }
+    }
+    
+    
+    
+    /**
+     * Overwrite a highscore file with name-score lines
+     * 
+     * @param file Highscore file
+     * @param highscores Scores to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void save(File file, Iterable<YahtzeeScore> highscores) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        
+        for (YahtzeeScore high : highscores)
+            writer.println(high.getPlayerName() + "-" + high.getScore());
+        
+        writer.close();
+    }
+}
@@ -0,0 +1,117 @@
+package yahtzee;
+
+public final class YahtzeeKeepEvaluator {
+    private static final int ROLLS = YahtzeeRollTable.ROLLS;
+    private static final int KEEPS = YahtzeeKeepTable.KEEPS;
+    private static final int MASKS = 1 << YahtzeeGame.DICE;
+    private static final int[] POW6 = { 1, 6, 36, 216, 1296, 7776 };
+    
+    private final YahtzeeStateValues values;
+    private final double[] score = new double[ROLLS];
+    private final double[] outcomes = new double[6];
+    private final double[] last = new double[ROLLS];
+    private final double[] next = new double[ROLLS];
+    private final double[] keeps = new double[KEEPS];
+    private final double[] best = new double[KEEPS];
+    private final double[] cached = new double[KEEPS];
+    // Stamps of the query that cached each keep; a long counter never wraps back onto a stale stamp
+    private final long[] cachedQuery = new long[KEEPS];
+    private long query;
+    
+    
+    
+    /**
+     * Build an evaluator for one thread at a time
+     * 
+     * @param solver Solved strategy
+     */
+    public YahtzeeKeepEvaluator(YahtzeeSolver solver) { this.values = solver.getStateValues(); }
+    
+    
+    
+    /**
+     * Get the expected future score of every keep mask of a roll under optimal play afterwards,
+     * not counting the Yahtzee bonus already awarded for the roll itself; masks keeping the same
+     * multiset are evaluated once
+     * 
+     * @param state State index, not all filled
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining, 1 or 2
+     * @param keepValues Destination for the value of each of the 32 masks over roll positions
+     * @return Mask of the best keep
+     * @throws IllegalArgumentException If the state is finished, the roll is not five dice or no reroll is left
+     */
+    public int evaluate(int state, int[] roll, int rerolls, double[] keepValues) {
+        if (YahtzeeSolver.filled(state) == YahtzeeSolver.ALL_FILLED || YahtzeeRollTable.indexOf(roll) == -1
+                || rerolls < 1 || rerolls > YahtzeeSolver.REROLLS)
+            throw new IllegalArgumentException("No keep to evaluate");
+        
+        // No rerolls left: score in the best category
+        YahtzeeSolver.scoreRolls(state, values, score, outcomes);
+        
+        for (int r = 0; r < ROLLS; r++)
+            last[r] = score[r] + YahtzeeSolver.yahtzeeBonusFor(state, r);
+        
+        double[] stage = last;
+        
+        // One reroll left: every roll takes the better of scoring and its best keep
+        if (rerolls == 2) {
+            for (int keep = 0; keep < KEEPS; keep++)
+                keeps[keep] = expect(keep, last);
+            
+            YahtzeeSolver.bestSubkeeps(keeps, best);
+            
+            for (int r = 0; r < ROLLS; r++) {
+                double keep = best[YahtzeeKeepTable.ofRoll(r)];
+                
+                next[r] = (score[r] > keep ? score[r] : keep) + YahtzeeSolver.yahtzeeBonusFor(state, r);
+            }
+            
+            stage = next;
+        }
+        
+        // Only the distinct keeps of the queried roll are needed from the last stage
+        query++;
+        int bestMask = 0;
+        
+        for (int mask = 0; mask < MASKS; mask++) {
+            int key = 0;
+            
+            for (int die = 0; die < roll.length; die++)
+                if ((mask & (1 << die)) != 0)
+                    key += POW6[roll[die] - 1];
+            
+            int keep = YahtzeeKeepTable.indexOfKey(key);
+            
+            if (cachedQuery[keep] != query) {
+                cachedQuery[keep] = query;
+                cached[keep] = expect(keep, stage);
+            }
+            
+            keepValues[mask] = cached[keep];
+            
+            if (keepValues[mask] > keepValues[bestMask])
+                bestMask = mask;
+        }
+        
+        return bestMask;
+    }
+    
+    
+    
+    /**
+     * @param keep Keep index
+     * @param rolls Value of every roll
+     * @return Expected value of the rolls the keep leads to
+     */
+    private static double expect(int keep, double[] rolls) {
+        int[] roll = YahtzeeKeepTable.TRANSITION_ROLL;
+        double[] probability = YahtzeeKeepTable.TRANSITION_PROBABILITY;
+        double value = 0;
+        
+        for (int i = YahtzeeKeepTable.TRANSITION_START[keep], end = YahtzeeKeepTable.TRANSITION_START[keep + 1]; i < end; i++)
+            value += probability[i] * rolls[roll[i]];
+        
+        return value;
+    }
+}
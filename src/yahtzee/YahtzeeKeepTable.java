@@ -0,0 +1,319 @@
+package yahtzee;
+
+public final class YahtzeeKeepTable {
+    /** Number of distinct multisets of zero to five dice */
+    public static final int KEEPS = 462;
+    
+    /** Keep index of the empty multiset */
+    public static final int EMPTY = 0;
+    
+    /** Number of keeps of fewer than five dice; keeps of five dice follow them */
+    public static final int PARTIAL_KEEPS = 210;
+    
+    private static final int DICE = 5;
+    private static final int FACES = 6;
+    private static final int[] POW6 = { 1, 6, 36, 216, 1296, 7776 };
+    
+    private static final short[] KEY_INDEX = new short[POW6[5] * FACES];
+    private static final int[] KEY_BY_INDEX = new int[KEEPS];
+    private static final int[] SIZE = new int[KEEPS];
+    static final int[] ADD = new int[KEEPS * FACES];
+    static final int[] ROLL_INDEX = new int[KEEPS];
+    static final int[] SMALLER_START = new int[KEEPS + 1];
+    static final int[] SMALLER;
+    private static final int[] REMOVE = new int[KEEPS * FACES];
+    private static final int[] ROLL_KEEP = new int[YahtzeeRollTable.ROLLS];
+    private static final int[] SUBKEEP_START = new int[YahtzeeRollTable.ROLLS + 1];
+    private static final int[] SUBKEEP_INDEX, SUBKEEP_MASK;
+    static final int[] TRANSITION_START = new int[KEEPS + 1];
+    static final int[] TRANSITION_ROLL;
+    static final double[] TRANSITION_PROBABILITY;
+    
+    
+    
+    static {
+        java.util.Arrays.fill(KEY_INDEX, (short)-1);
+        
+        // Enumerate keeps by size so smaller keeps come first
+        int index = 0;
+        
+        for (int size = 0; size <= DICE; size++)
+            for (int key = 0; key < KEY_INDEX.length; key++)
+                if (sizeOfKey(key) == size) {
+                    KEY_INDEX[key] = (short)index;
+                    KEY_BY_INDEX[index] = key;
+                    SIZE[index] = size;
+                    index++;
+                }
+        
+        // Link each keep to the keeps with one more and one fewer die and to its roll
+        for (int k = 0; k < KEEPS; k++) {
+            int key = KEY_BY_INDEX[k];
+            
+            ROLL_INDEX[k] = (SIZE[k] == DICE ? YahtzeeRollTable.indexOfKey(key) : -1);
+            
+            if (SIZE[k] == DICE)
+                ROLL_KEEP[ROLL_INDEX[k]] = k;
+            
+            for (int face = 1; face <= FACES; face++) {
+                ADD[k * FACES + face - 1] = (SIZE[k] == DICE ? -1 : KEY_INDEX[key + POW6[face-1]]);
+                REMOVE[k * FACES + face - 1] = ((key / POW6[face-1]) % FACES == 0 ? -1 : KEY_INDEX[key - POW6[face-1]]);
+            }
+        }
+        
+        // List the distinct keeps with one fewer die
+        int[] smaller = new int[KEEPS * FACES];
+        int m = 0;
+        
+        for (int k = 0; k < KEEPS; k++) {
+            SMALLER_START[k] = m;
+            
+            for (int face = 1; face <= FACES; face++)
+                if (REMOVE[k * FACES + face - 1] != -1)
+                    smaller[m++] = REMOVE[k * FACES + face - 1];
+        }
+        
+        SMALLER_START[KEEPS] = m;
+        SMALLER = java.util.Arrays.copyOf(smaller, m);
+        
+        // Collect the distinct sub-multisets of every roll with one dice mask for each
+        int[] indices = new int[YahtzeeRollTable.ROLLS * 32];
+        int[] masks = new int[YahtzeeRollTable.ROLLS * 32];
+        int n = 0;
+        
+        for (int roll = 0; roll < YahtzeeRollTable.ROLLS; roll++) {
+            SUBKEEP_START[roll] = n;
+            
+            for (int mask = 0; mask < 32; mask++) {
+                int key = 0;
+                
+                for (int die = 0; die < DICE; die++)
+                    if ((mask & (1 << die)) != 0)
+                        key += POW6[YahtzeeRollTable.face(roll, die) - 1];
+                
+                int keep = KEY_INDEX[key];
+                boolean seen = false;
+                
+                for (int i = SUBKEEP_START[roll]; i < n && !seen; i++)
+                    seen = (indices[i] == keep);
+                
+                if (!seen) {
+                    indices[n] = keep;
+                    masks[n] = mask;
+                    n++;
+                }
+            }
+        }
+        
+        SUBKEEP_START[YahtzeeRollTable.ROLLS] = n;
+        SUBKEEP_INDEX = java.util.Arrays.copyOf(indices, n);
+        SUBKEEP_MASK = java.util.Arrays.copyOf(masks, n);
+        
+        // List the rolls every keep can lead to, with their probabilities, by rolling out the missing dice
+        int[] rolls = new int[KEEPS * YahtzeeRollTable.ROLLS];
+        double[] probabilities = new double[rolls.length];
+        int[] outcomes = new int[YahtzeeRollTable.ROLLS];
+        int t = 0;
+        
+        for (int k = 0; k < KEEPS; k++) {
+            int missing = DICE - SIZE[k];
+            
+            java.util.Arrays.fill(outcomes, 0);
+            
+            for (int dice = 0; dice < POW6[missing]; dice++) {
+                int key = KEY_BY_INDEX[k];
+                
+                for (int die = 0, rest = dice; die < missing; die++, rest /= FACES)
+                    key += POW6[rest % FACES];
+                
+                outcomes[YahtzeeRollTable.indexOfKey(key)]++;
+            }
+            
+            TRANSITION_START[k] = t;
+            
+            for (int roll = 0; roll < YahtzeeRollTable.ROLLS; roll++)
+                if (outcomes[roll] != 0) {
+                    rolls[t] = roll;
+                    probabilities[t] = (double)outcomes[roll] / POW6[missing];
+                    t++;
+                }
+        }
+        
+        TRANSITION_START[KEEPS] = t;
+        TRANSITION_ROLL = java.util.Arrays.copyOf(rolls, t);
+        TRANSITION_PROBABILITY = java.util.Arrays.copyOf(probabilities, t);
+    }
+    
+    
+    
+    private YahtzeeKeepTable() {}
+    
+    
+    
+    /**
+     * Get the keep index of a multiset of dice
+     * 
+     * @param key Sum of 6^(face-1) over the kept dice
+     * @return Keep index, or -1 if more than five dice
+     */
+    public static int indexOfKey(int key) { return KEY_INDEX[key]; }
+    
+    
+    
+    /**
+     * @param keep Keep index
+     * @return Face count key of the keep
+     */
+    public static int keyOf(int keep) { return KEY_BY_INDEX[keep]; }
+    
+    
+    
+    /**
+     * @param keep Keep index
+     * @return Number of dice kept
+     */
+    public static int size(int keep) { return SIZE[keep]; }
+    
+    
+    
+    /**
+     * @param keep Keep index of fewer than five dice
+     * @param face Face to add
+     * @return Keep index with one more die of that face
+     */
+    public static int add(int keep, int face) { return ADD[keep * FACES + face - 1]; }
+    
+    
+    
+    /**
+     * @param keep Keep index
+     * @param face Face to remove
+     * @return Keep index with one fewer die of that face, or -1 if the keep has none
+     */
+    public static int remove(int keep, int face) { return REMOVE[keep * FACES + face - 1]; }
+    
+    
+    
+    /**
+     * @param keep Keep index of five dice
+     * @return Roll index of the same dice
+     */
+    public static int rollIndex(int keep) { return ROLL_INDEX[keep]; }
+    
+    
+    
+    /**
+     * @param roll Roll index
+     * @return Keep index of all five dice of the roll
+     */
+    public static int ofRoll(int roll) { return ROLL_KEEP[roll]; }
+    
+    
+    
+    /**
+     * @param roll Roll index
+     * @return Start of the roll's distinct keeps in subkeep order
+     */
+    public static int subkeepStart(int roll) { return SUBKEEP_START[roll]; }
+    
+    
+    
+    /**
+     * @param roll Roll index
+     * @return End (exclusive) of the roll's distinct keeps in subkeep order
+     */
+    public static int subkeepEnd(int roll) { return SUBKEEP_START[roll + 1]; }
+    
+    
+    
+    /**
+     * @param i Position in subkeep order
+     * @return Keep index
+     */
+    public static int subkeep(int i) { return SUBKEEP_INDEX[i]; }
+    
+    
+    
+    /**
+     * @param i Position in subkeep order
+     * @return Mask over the sorted dice of the roll that keeps this multiset
+     */
+    public static int subkeepMask(int i) { return SUBKEEP_MASK[i]; }
+    
+    
+    
+    /**
+     * @param keep Keep index
+     * @return Start of the keep's transitions
+     */
+    public static int transitionStart(int keep) { return TRANSITION_START[keep]; }
+    
+    
+    
+    /**
+     * @param keep Keep index
+     * @return End (exclusive) of the keep's transitions
+     */
+    public static int transitionEnd(int keep) { return TRANSITION_START[keep + 1]; }
+    
+    
+    
+    /**
+     * @param i Position in transition order
+     * @return Roll index reached by rerolling the dice not kept
+     */
+    public static int transitionRoll(int i) { return TRANSITION_ROLL[i]; }
+    
+    
+    
+    /**
+     * @param i Position in transition order
+     * @return Probability of reaching the roll
+     */
+    public static double transitionProbability(int i) { return TRANSITION_PROBABILITY[i]; }
+    
+    
+    
+    /**
+     * Translate a mask over sorted dice into a mask over the dice of an unsorted roll
+     * 
+     * @param roll Dice values in any order
+     * @param sortedMask Mask over the same dice sorted ascending
+     * @return Mask over roll positions keeping the same multiset
+     */
+    public static int toPositionMask(int[] roll, int sortedMask) {
+        int index = YahtzeeRollTable.indexOf(roll);
+        int[] wanted = new int[FACES + 1];
+        
+        for (int die = 0; die < DICE; die++)
+            if ((sortedMask & (1 << die)) != 0)
+                wanted[YahtzeeRollTable.face(index, die)]++;
+        
+        int mask = 0;
+        
+        for (int i = 0; i < roll.length; i++)
+            if (wanted[roll[i]] > 0) {
+                wanted[roll[i]]--;
+                mask |= 1 << i;
+            }
+        
+        return mask;
+    }
+    
+    
+    
+    /**
+     * @param key Face count key
+     * @return Number of dice
+     */
+    private static int sizeOfKey(int key) {
+        int size = 0;
+        
+        for (int face = 0; face < FACES; face++) {
+            size += key % FACES;
+            key /= FACES;
+        }
+        
+        return size;
+    }
+}
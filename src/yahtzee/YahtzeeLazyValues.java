@@ -0,0 +1,120 @@
+package yahtzee;
+
+public final class YahtzeeLazyValues implements YahtzeeStateValues {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int EMPTY = -1;
+    
+    // One workspace per number of filled categories, as evaluating a state recurses into states with one more
+    private final YahtzeeSolver.Workspace[] workspaces = new YahtzeeSolver.Workspace[YahtzeeRollTable.CATEGORIES];
+    private int[] keys = newKeys(INITIAL_CAPACITY);
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int size;
+    
+    
+    
+    /**
+     * Build an empty table that solves states the first time they are asked for
+     */
+    public YahtzeeLazyValues() {
+        for (int i = 0; i < workspaces.length; i++)
+            workspaces[i] = new YahtzeeSolver.Workspace();
+    }
+    
+    
+    
+    /**
+     * Get the value of a state, solving it and every unsolved state reachable from it first; an
+     * interrupted thread stops before solving each further state, keeping those already solved
+     * 
+     * @param state State index, see YahtzeeSolver.state
+     * @return Expected future score
+     * @throws java.util.concurrent.CancellationException If the thread is interrupted with states left to solve
+     */
+    @Override public synchronized double getValue(int state) {
+        int filled = YahtzeeSolver.filled(state);
+        
+        if (filled == YahtzeeSolver.ALL_FILLED)
+            return 0;
+        
+        int slot = find(state);
+        
+        if (keys[slot] == state)
+            return values[slot];
+        
+        if (Thread.currentThread().isInterrupted())
+            throw new java.util.concurrent.CancellationException("Interrupted while solving state " + state);
+        
+        // Successors are solved, and may grow the table, during the evaluation
+        double value = YahtzeeSolver.evaluate(state, this, workspaces[Integer.bitCount(filled)]);
+        
+        put(state, value);
+        return value;
+    }
+    
+    
+    
+    /**
+     * @return Number of states solved so far
+     */
+    public synchronized int size() { return size; }
+    
+    
+    
+    /**
+     * @param state State index
+     * @return Slot holding the state, or the empty slot where it belongs
+     */
+    private int find(int state) {
+        int mask = keys.length - 1;
+        int slot = (state * 0x9E3779B9) >>> 8 & mask;
+        
+        while (keys[slot] != EMPTY && keys[slot] != state)
+            slot = (slot + 1) & mask;
+        
+        return slot;
+    }
+    
+    
+    
+    /**
+     * Insert a new state, doubling the table once it is half full
+     * 
+     * @param state State index
+     * @param value Expected future score
+     */
+    private void put(int state, double value) {
+        if (2 * (size + 1) > keys.length) {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            
+            keys = newKeys(oldKeys.length * 2);
+            values = new double[oldKeys.length * 2];
+            
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+        }
+        
+        int slot = find(state);
+        
+        keys[slot] = state;
+        values[slot] = value;
+        size++;
+    }
+    
+    
+    
+    /**
+     * @param capacity Power of two
+     * @return Key array with every slot empty
+     */
+    private static int[] newKeys(int capacity) {
+        int[] keys = new int[capacity];
+        java.util.Arrays.fill(keys, EMPTY);
+        
+        return keys;
+    }
+}
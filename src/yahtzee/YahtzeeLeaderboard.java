@@ -0,0 +1,164 @@
+package yahtzee;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class YahtzeeLeaderboard {
+    private static final int SCORES = YahtzeeGame.MAX_SCORE + 1;
+    
+    // Fenwick tree over slots MAX_SCORE - score, so prefix sums count the scores at or above one
+    private final long[] tree = new long[SCORES + 1];
+    private final List<List<YahtzeeScore>> entries = new ArrayList<>(SCORES);
+    private final Map<String, Integer> best = new HashMap<>();
+    private long size;
+    
+    
+    
+    /**
+     * Create an empty leaderboard over every score the rules allow
+     */
+    public YahtzeeLeaderboard() {
+        for (int score = 0; score < SCORES; score++)
+            entries.add(null);
+    }
+    
+    
+    
+    /**
+     * Record a game; equal scores rank in the order they were added
+     * 
+     * @param score Score to add
+     * @throws IllegalArgumentException If the score is outside 0 to MAX_SCORE
+     */
+    public void add(YahtzeeScore score) {
+        int value = score.getScore();
+        
+        if (value < 0 || value >= SCORES)
+            throw new IllegalArgumentException("Score out of range: " + value);
+        
+        List<YahtzeeScore> bucket = entries.get(value);
+        
+        if (bucket == null)
+            entries.set(value, bucket = new ArrayList<>(1));
+        
+        bucket.add(score);
+        size++;
+        
+        Integer previous = best.get(score.getPlayerName());
+        
+        if (previous == null || value > previous)
+            best.put(score.getPlayerName(), value);
+        
+        for (int i = SCORES - value; i <= SCORES; i += i & -i)
+            tree[i]++;
+    }
+    
+    
+    
+    /**
+     * Record several games
+     * 
+     * @param scores Scores to add
+     */
+    public void addAll(Iterable<YahtzeeScore> scores) {
+        for (YahtzeeScore score : scores)
+            add(score);
+    }
+    
+    
+    
+    /**
+     * @return Games recorded
+     */
+    public long size() { return size; }
+    
+    
+    
+    /**
+     * @param score Final score
+     * @return Number of games that scored at least that much
+     */
+    public long countAtLeast(int score) {
+        if (score <= 0)
+            return size;
+        if (score >= SCORES)
+            return 0;
+        
+        long count = 0;
+        
+        for (int i = SCORES - score; i > 0; i -= i & -i)
+            count += tree[i];
+        
+        return count;
+    }
+    
+    
+    
+    /**
+     * Get the rank a score would take on the board
+     * 
+     * @param score Final score
+     * @return One more than the number of games that scored strictly more
+     */
+    public long getRank(int score) { return countAtLeast(score + 1) + 1; }
+    
+    
+    
+    /**
+     * @param playerName Player name
+     * @return Rank of the player's best game, or -1 if they have none
+     */
+    public long getPlayerRank(String playerName) {
+        Integer score = best.get(playerName);
+        return (score == null ? -1 : getRank(score));
+    }
+    
+    
+    
+    /**
+     * Get the score at a rank, by descending the tree
+     * 
+     * @param rank Rank from 1, the best game, to size()
+     * @return Score of the game at that rank
+     * @throws IndexOutOfBoundsException If no game has that rank
+     */
+    public int getScoreAt(long rank) {
+        if (rank < 1 || rank > size)
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + size);
+        
+        // Largest slot whose prefix holds fewer than rank games; the next slot holds the game
+        int slot = 0;
+        
+        for (int step = Integer.highestOneBit(SCORES); step > 0; step >>= 1)
+            if (slot + step <= SCORES && tree[slot + step] < rank) {
+                slot += step;
+                rank -= tree[slot];
+            }
+        
+        return SCORES - (slot + 1);
+    }
+    
+    
+    
+    /**
+     * Get the best games, best first
+     * 
+     * @param k Number of games
+     * @return Up to k games
+     */
+    public List<YahtzeeScore> getTop(int k) {
+        List<YahtzeeScore> top = new ArrayList<>(Math.max(0, (int)Math.min(k, size)));
+        
+        // Each step jumps straight to the next occupied score
+        while (top.size() < k && top.size() < size) {
+            List<YahtzeeScore> bucket = entries.get(getScoreAt(top.size() + 1));
+            
+            for (int i = 0; i < bucket.size() && top.size() < k; i++)
+                top.add(bucket.get(i));
+        }
+        
+        return top;
+    }
+}
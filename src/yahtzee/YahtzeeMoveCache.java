@@ -0,0 +1,331 @@
+package yahtzee;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class YahtzeeMoveCache {
+    /** Approximate bytes held per entry: key, value, reference bit and two to four index slots */
+    public static final int ENTRY_BYTES = 8 + 8 + 1 + 3 * 4;
+    
+    private static final int DEFAULT_SEGMENTS = 16;
+    
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+    
+    
+    
+    /**
+     * Build a cache split into 16 independently locked segments
+     * 
+     * @param maxBytes Memory budget
+     */
+    public YahtzeeMoveCache(long maxBytes) { this(maxBytes, DEFAULT_SEGMENTS); }
+    
+    
+    
+    /**
+     * Build a cache split into independently locked segments, each evicting by CLOCK
+     * 
+     * @param maxBytes Memory budget
+     * @param segments Number of segments, rounded up to a power of two
+     * @throws IllegalArgumentException If the budget holds less than one entry per segment
+     */
+    public YahtzeeMoveCache(long maxBytes, int segments) {
+        int count = (segments <= 1 ? 1 : Integer.highestOneBit((segments - 1) << 1));
+        long perSegment = maxBytes / ENTRY_BYTES / count;
+        
+        if (perSegment < 1)
+            throw new IllegalArgumentException("Budget of " + maxBytes + " bytes is too small");
+        
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        
+        for (int i = 0; i < count; i++)
+            this.segments[i] = new Segment((int)Math.min(perSegment, 1 << 28));
+    }
+    
+    
+    
+    /**
+     * Build the key of a query about a roll; only the solver state part of the packed
+     * scorecard matters to the optimal move
+     * 
+     * @param packedState Scorecard packed by YahtzeePackedState
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @return Key
+     * @throws IllegalArgumentException If the roll is not five dice
+     */
+    public static long key(long packedState, int[] roll, int rerolls) {
+        int index = YahtzeeRollTable.indexOf(roll);
+        
+        // -1 would spill into the state bits and collide with a real key
+        if (index == -1)
+            throw new IllegalArgumentException("Not a roll: " + java.util.Arrays.toString(roll));
+        
+        return key(YahtzeePackedState.state(packedState), index, rerolls);
+    }
+    
+    
+    
+    /**
+     * @param state Solver state index
+     * @param roll Roll index
+     * @param rerolls Rerolls remaining
+     * @return Key
+     */
+    public static long key(int state, int roll, int rerolls) { return (long)state << 10 | roll << 2 | rerolls; }
+    
+    
+    
+    /**
+     * Look up a key and mark it recently used
+     * 
+     * @param key Key
+     * @param absent Value to return when the key is not cached
+     * @return Cached value, or absent
+     */
+    public long get(long key, long absent) {
+        long hash = mix(key);
+        Segment segment = segments[(int)(hash >>> 40) & segmentMask];
+        long value;
+        
+        synchronized (segment) {
+            int entry = segment.find(key, (int)hash);
+            
+            if (entry == -1) {
+                misses.increment();
+                return absent;
+            }
+            
+            segment.referenced[entry] = true;
+            value = segment.values[entry];
+        }
+        
+        hits.increment();
+        return value;
+    }
+    
+    
+    
+    /**
+     * Cache a value, evicting the first entry not used since the clock hand last passed
+     * when the segment is full
+     * 
+     * @param key Key
+     * @param value Value
+     */
+    public void put(long key, long value) {
+        long hash = mix(key);
+        Segment segment = segments[(int)(hash >>> 40) & segmentMask];
+        
+        synchronized (segment) {
+            if (segment.put(key, (int)hash, value))
+                evictions.increment();
+        }
+    }
+    
+    
+    
+    /**
+     * Drop every entry; the counters keep running
+     */
+    public void clear() {
+        for (Segment segment : segments)
+            synchronized (segment) {
+                segment.clear();
+            }
+    }
+    
+    
+    
+    /**
+     * @return Number of cached entries
+     */
+    public long size() {
+        long size = 0;
+        
+        for (Segment segment : segments)
+            synchronized (segment) {
+                size += segment.size;
+            }
+        
+        return size;
+    }
+    
+    
+    
+    /**
+     * @return Maximum number of entries
+     */
+    public long capacity() { return (long)segments.length * segments[0].keys.length; }
+    
+    
+    
+    /**
+     * @return Lookups that found their key
+     */
+    public long getHits() { return hits.sum(); }
+    
+    
+    
+    /**
+     * @return Lookups that did not find their key
+     */
+    public long getMisses() { return misses.sum(); }
+    
+    
+    
+    /**
+     * @return Entries evicted to make room
+     */
+    public long getEvictions() { return evictions.sum(); }
+    
+    
+    
+    /**
+     * @return Summary of the counters
+     */
+    @Override public String toString() {
+        long h = getHits(), m = getMisses();
+        
+        return String.format("entries %d/%d   hits %d   misses %d   hit rate %.1f%%   evictions %d",
+                size(), capacity(), h, m, 100.0 * h / Math.max(1, h + m), getEvictions());
+    }
+    
+    
+    
+    /**
+     * Spread keys over segments and index slots
+     * 
+     * @param key Key
+     * @return Hash
+     */
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        
+        return key ^ (key >>> 33);
+    }
+    
+    
+    
+    /**
+     * Fixed-capacity entry arrays with a linear probing index, guarded by the segment's monitor
+     */
+    private static final class Segment {
+        final long[] keys, values;
+        final boolean[] referenced;
+        final int[] index;
+        final int indexMask;
+        int size, hand;
+        
+        
+        
+        Segment(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            referenced = new boolean[capacity];
+            index = new int[Integer.highestOneBit(capacity) * 4];
+            indexMask = index.length - 1;
+        }
+        
+        
+        
+        /**
+         * @param key Key
+         * @param hash Hash of the key
+         * @return Entry holding the key, or -1
+         */
+        int find(long key, int hash) {
+            for (int i = hash & indexMask; index[i] != 0; i = (i + 1) & indexMask)
+                if (keys[index[i] - 1] == key)
+                    return index[i] - 1;
+            
+            return -1;
+        }
+        
+        
+        
+        /**
+         * @param key Key
+         * @param hash Hash of the key
+         * @param value Value
+         * @return Whether an entry was evicted
+         */
+        boolean put(long key, int hash, long value) {
+            int i = hash & indexMask;
+            
+            for (; index[i] != 0; i = (i + 1) & indexMask)
+                if (keys[index[i] - 1] == key) {
+                    values[index[i] - 1] = value;
+                    referenced[index[i] - 1] = true;
+                    return false;
+                }
+            
+            boolean evicted = false;
+            int entry;
+            
+            if (size < keys.length)
+                entry = size++;
+            else {
+                // Sweep the hand, giving referenced entries a second chance
+                while (referenced[hand]) {
+                    referenced[hand] = false;
+                    hand = (hand + 1) % keys.length;
+                }
+                
+                entry = hand;
+                hand = (hand + 1) % keys.length;
+                unlink(entry);
+                evicted = true;
+                
+                // Unlinking may have shifted the free slot found above
+                for (i = hash & indexMask; index[i] != 0; i = (i + 1) & indexMask);
+            }
+            
+            keys[entry] = key;
+            values[entry] = value;
+            referenced[entry] = false;
+            index[i] = entry + 1;
+            
+            return evicted;
+        }
+        
+        
+        
+        /**
+         * Remove an entry from the index, shifting later probes back so no lookup stops early
+         * 
+         * @param entry Entry
+         */
+        private void unlink(int entry) {
+            int i = (int)mix(keys[entry]) & indexMask;
+            
+            while (index[i] != entry + 1)
+                i = (i + 1) & indexMask;
+            
+            index[i] = 0;
+            
+            for (int j = (i + 1) & indexMask; index[j] != 0; j = (j + 1) & indexMask) {
+                int home = (int)mix(keys[index[j] - 1]) & indexMask;
+                
+                // Move the probe back unless its home lies cyclically within (i, j]
+                if (((j - home) & indexMask) >= ((j - i) & indexMask)) {
+                    index[i] = index[j];
+                    index[j] = 0;
+                    i = j;
+                }
+            }
+        }
+        
+        
+        
+        void clear() {
+            java.util.Arrays.fill(index, 0);
+            java.util.Arrays.fill(referenced, false);
+            size = 0;
+            hand = 0;
+        }
+    }
+}
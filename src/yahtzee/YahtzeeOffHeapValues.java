@@ -0,0 +1,149 @@
+package yahtzee;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class YahtzeeOffHeapValues implements YahtzeeStateValues {
+    /** How each state value is stored */
+    public enum Precision {
+        /** Single precision float, 4 bytes per state */
+        FLOAT32(4),
+        
+        /** Unsigned fixed point scaled to the largest value, 2 bytes per state */
+        FIXED16(2);
+        
+        final int bytes;
+        
+        Precision(int bytes) { this.bytes = bytes; }
+        
+        /**
+         * @return Bytes stored per state
+         */
+        public int getBytes() { return bytes; }
+    }
+    
+    /** Number of states reachable under the rules */
+    public static final int REACHABLE_STATES;
+    
+    // Rank directory: one bit per state index, plus the number of reachable states before each word
+    private static final long[] REACHABLE_BITS = new long[YahtzeeSolver.STATES / 64];
+    private static final int[] RANK_BASE = new int[REACHABLE_BITS.length];
+    private static final int FIXED_MAX = 0xFFFF;
+    
+    
+    
+    static {
+        int rank = 0;
+        
+        for (int word = 0; word < REACHABLE_BITS.length; word++) {
+            RANK_BASE[word] = rank;
+            
+            for (int bit = 0; bit < 64; bit++)
+                if (YahtzeeSolver.isReachable(word * 64 + bit))
+                    REACHABLE_BITS[word] |= 1L << bit;
+            
+            rank += Long.bitCount(REACHABLE_BITS[word]);
+        }
+        
+        REACHABLE_STATES = rank;
+    }
+    
+    
+    
+    private final ByteBuffer buffer;
+    private final Precision precision;
+    private final double scale;
+    
+    
+    
+    private YahtzeeOffHeapValues(ByteBuffer buffer, Precision precision, double scale) {
+        this.buffer = buffer;
+        this.precision = precision;
+        this.scale = scale;
+    }
+    
+    
+    
+    /**
+     * Copy the reachable states of a table into a direct buffer outside the Java heap
+     * 
+     * @param source Solved state values
+     * @param precision Storage precision
+     * @return Off-heap copy
+     */
+    public static YahtzeeOffHeapValues copyOf(YahtzeeStateValues source, Precision precision) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(REACHABLE_STATES * precision.bytes).order(ByteOrder.nativeOrder());
+        double max = 0;
+        
+        for (int state = 0; state < YahtzeeSolver.STATES; state++)
+            if (YahtzeeSolver.isReachable(state))
+                max = Math.max(max, source.getValue(state));
+        
+        // Map [0, max] onto the full 16-bit range
+        double scale = (max > 0 ? FIXED_MAX / max : 1);
+        
+        for (int state = 0; state < YahtzeeSolver.STATES; state++)
+            if (YahtzeeSolver.isReachable(state)) {
+                int offset = rank(state) * precision.bytes;
+                double value = source.getValue(state);
+                
+                if (precision == Precision.FLOAT32)
+                    buffer.putFloat(offset, (float)value);
+                else
+                    buffer.putShort(offset, (short)Math.round(value * scale));
+            }
+        
+        return new YahtzeeOffHeapValues(buffer, precision, scale);
+    }
+    
+    
+    
+    /**
+     * @param state State index, see YahtzeeSolver.state
+     * @return Expected future score, or NaN for a state the rules cannot reach
+     */
+    @Override public double getValue(int state) {
+        if ((REACHABLE_BITS[state >>> 6] & (1L << state)) == 0)
+            return Double.NaN;
+        
+        int offset = rank(state) * precision.bytes;
+        
+        if (precision == Precision.FLOAT32)
+            return buffer.getFloat(offset);
+        
+        return (buffer.getShort(offset) & FIXED_MAX) / scale;
+    }
+    
+    
+    
+    /**
+     * @return Storage precision
+     */
+    public Precision getPrecision() { return precision; }
+    
+    
+    
+    /**
+     * @return Off-heap bytes used
+     */
+    public long getMemoryBytes() { return buffer.capacity(); }
+    
+    
+    
+    /**
+     * @return Largest possible error of a stored value from rounding, ignoring float32 which is relative
+     */
+    public double getFixedPointError() { return (precision == Precision.FIXED16 ? 0.5 / scale : 0); }
+    
+    
+    
+    /**
+     * @param state Reachable state index
+     * @return Position of the state among reachable states in index order
+     */
+    static int rank(int state) {
+        int word = state >>> 6;
+        
+        return RANK_BASE[word] + Long.bitCount(REACHABLE_BITS[word] & ((1L << state) - 1));
+    }
+}
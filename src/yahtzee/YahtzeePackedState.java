@@ -0,0 +1,291 @@
+package yahtzee;
+
+public final class YahtzeePackedState {
+    /*
+     * Bits 0-19 hold the solver state index: the Yahtzee bonus flag in bit 0, the lower subtotal
+     * capped at 63 in bits 1-6 and the filled categories in bits 7-19. Bits 20-31 hold the total
+     * score. Bits 32-61 hold the remaining detail as one mixed-radix number: the die count scored
+     * in each of aces to sixes, then three of a kind, four of a kind and chance. Full house, the
+     * straights and the bonuses follow from the total, since their points are distinct mod 100.
+     */
+    private static final int STATE_BITS = 20;
+    private static final int TOTAL_BITS = 12;
+    private static final int DETAIL_SHIFT = STATE_BITS + TOTAL_BITS;
+    private static final int CATEGORIES = YahtzeeRollTable.CATEGORIES;
+    
+    private static final int THREE_KIND = 6, FOUR_KIND = 7, FULL_HOUSE = 8, SMALL_STRAIGHT = 9, LARGE_STRAIGHT = 10;
+    private static final int YAHTZEE = 11, CHANCE = 12;
+    
+    // Lowest nonzero score and number of encoded values, zero included, of the summed categories
+    private static final int THREE_KIND_MIN = 7, THREE_KIND_VALUES = 23;
+    private static final int FOUR_KIND_MIN = 6, FOUR_KIND_VALUES = 25;
+    private static final int CHANCE_MIN = 5, CHANCE_VALUES = 27;
+    
+    private static final int[] FIXED_SCORE = { 25, 30, 40 };
+    
+    
+    
+    private YahtzeePackedState() {}
+    
+    
+    
+    /**
+     * Pack a scorecard into one long
+     * 
+     * @param scorecard Scorecard as filled by a game
+     * @return Packed state
+     * @throws IllegalArgumentException If a score or the bonus cannot come from a game
+     */
+    public static long pack(YahtzeeScorecard scorecard) {
+        int filled = 0, upper = 0;
+        long detail = 0;
+        
+        for (int c = 0; c < CATEGORIES; c++)
+            if (scorecard.getCategoryScore(c) != -1)
+                filled |= 1 << c;
+        
+        // Die counts of aces to sixes, most significant first
+        for (int c = 5; c >= 0; c--) {
+            int score = Math.max(0, scorecard.getCategoryScore(c));
+            
+            if (score % (c + 1) != 0 || score / (c + 1) > 5)
+                throw new IllegalArgumentException("Invalid score " + score + " in category " + c);
+            
+            upper += score;
+            detail = detail * 6 + score / (c + 1);
+        }
+        
+        detail = detail * THREE_KIND_VALUES + encodeSum(scorecard, THREE_KIND, THREE_KIND_MIN, THREE_KIND_VALUES);
+        detail = detail * FOUR_KIND_VALUES + encodeSum(scorecard, FOUR_KIND, FOUR_KIND_MIN, FOUR_KIND_VALUES);
+        detail = detail * CHANCE_VALUES + encodeSum(scorecard, CHANCE, CHANCE_MIN, CHANCE_VALUES);
+        
+        for (int c = FULL_HOUSE; c <= YAHTZEE; c++) {
+            int score = scorecard.getCategoryScore(c);
+            
+            if (score > 0 && score != fixedScore(c))
+                throw new IllegalArgumentException("Invalid score " + score + " in category " + c);
+        }
+        
+        int bonus = scorecard.getBonusScore();
+        
+        if (bonus < 0 || bonus % 50 != 0)
+            throw new IllegalArgumentException("Invalid bonus " + bonus);
+        
+        int total = scorecard.getTotalScore();
+        
+        if (total >= 1 << TOTAL_BITS)
+            throw new IllegalArgumentException("Invalid total " + total);
+        
+        int state = YahtzeeSolver.state(filled, upper, scorecard.getCategoryScore(YAHTZEE) == 50);
+        
+        return state | (long)total << STATE_BITS | detail << DETAIL_SHIFT;
+    }
+    
+    
+    
+    /**
+     * Unpack a state into a new scorecard
+     * 
+     * @param packed Packed state
+     * @return Scorecard
+     */
+    public static YahtzeeScorecard toScorecard(long packed) {
+        YahtzeeScorecard scorecard = new YahtzeeScorecard();
+        unpack(packed, scorecard);
+        
+        return scorecard;
+    }
+    
+    
+    
+    /**
+     * Unpack a state into an existing scorecard, overwriting every category and the bonus
+     * 
+     * @param packed Packed state
+     * @param scorecard Destination
+     */
+    public static void unpack(long packed, YahtzeeScorecard scorecard) {
+        for (int c = 0; c < CATEGORIES; c++)
+            scorecard.setCategoryScore(c, getCategoryScore(packed, c));
+        
+        scorecard.setBonusScore(getBonusScore(packed));
+    }
+    
+    
+    
+    /**
+     * @param packed Packed state
+     * @return Solver state index
+     */
+    public static int state(long packed) { return (int)packed & ((1 << STATE_BITS) - 1); }
+    
+    
+    
+    /**
+     * @param packed Packed state
+     * @return Mask of filled categories
+     */
+    public static int filled(long packed) { return YahtzeeSolver.filled(state(packed)); }
+    
+    
+    
+    /**
+     * @param packed Packed state
+     * @return Lower section subtotal, capped at 63
+     */
+    public static int lowerSubtotal(long packed) { return YahtzeeSolver.lowerSubtotal(state(packed)); }
+    
+    
+    
+    /**
+     * @param packed Packed state
+     * @return Whether further Yahtzees earn the bonus
+     */
+    public static boolean yahtzeeBonus(long packed) { return YahtzeeSolver.yahtzeeBonus(state(packed)); }
+    
+    
+    
+    /**
+     * @param packed Packed state
+     * @return Total score
+     */
+    public static int getTotalScore(long packed) { return (int)(packed >>> STATE_BITS) & ((1 << TOTAL_BITS) - 1); }
+    
+    
+    
+    /**
+     * Get the score in some category
+     * 
+     * @param packed Packed state
+     * @param category Category index
+     * @return Score, or -1 if open
+     */
+    public static int getCategoryScore(long packed, int category) {
+        if ((filled(packed) & (1 << category)) == 0)
+            return -1;
+        
+        long detail = packed >>> DETAIL_SHIFT;
+        
+        switch (category) {
+            case CHANCE:
+                return decodeSum(detail % CHANCE_VALUES, CHANCE_MIN);
+            case FOUR_KIND:
+                return decodeSum(detail / CHANCE_VALUES % FOUR_KIND_VALUES, FOUR_KIND_MIN);
+            case THREE_KIND:
+                return decodeSum(detail / CHANCE_VALUES / FOUR_KIND_VALUES % THREE_KIND_VALUES, THREE_KIND_MIN);
+            case YAHTZEE:
+                return (yahtzeeBonus(packed) ? 50 : 0);
+            case FULL_HOUSE:
+            case SMALL_STRAIGHT:
+            case LARGE_STRAIGHT:
+                return ((fixedScores(packed) & (1 << (category - FULL_HOUSE))) != 0 ? FIXED_SCORE[category - FULL_HOUSE] : 0);
+            default:
+                long upper = detail / CHANCE_VALUES / FOUR_KIND_VALUES / THREE_KIND_VALUES;
+                
+                for (int c = 0; c < category; c++)
+                    upper /= 6;
+                
+                return (int)(upper % 6) * (category + 1);
+        }
+    }
+    
+    
+    
+    /**
+     * @param packed Packed state
+     * @return Lower section and multiple Yahtzee bonus
+     */
+    public static int getBonusScore(long packed) {
+        int rest = getTotalScore(packed);
+        
+        for (int c = 0; c < CATEGORIES; c++)
+            if (c < FULL_HOUSE || c > LARGE_STRAIGHT)
+                rest -= Math.max(0, getCategoryScore(packed, c));
+        
+        return rest - fixedPoints(fixedScores(packed));
+    }
+    
+    
+    
+    /**
+     * Find which of full house and the straights scored, from the points the total leaves unexplained
+     * 
+     * @param packed Packed state
+     * @return Mask of full house, small straight and large straight
+     */
+    private static int fixedScores(long packed) {
+        int rest = getTotalScore(packed);
+        
+        for (int c = 0; c < CATEGORIES; c++)
+            if ((c < FULL_HOUSE || c > LARGE_STRAIGHT) && (filled(packed) & (1 << c)) != 0)
+                rest -= getCategoryScore(packed, c);
+        
+        // The rest is those scores plus 50 for the lower bonus plus 100 per bonus Yahtzee
+        for (int mask = 0; mask < 16; mask++) {
+            int points = fixedPoints(mask & 7) + ((mask & 8) != 0 ? YahtzeeSolver.LOWER_BONUS : 0);
+            
+            if (rest >= points && (rest - points) % 100 == 0)
+                return mask & 7;
+        }
+        
+        throw new IllegalArgumentException("Corrupt packed state " + Long.toHexString(packed));
+    }
+    
+    
+    
+    /**
+     * @param mask Mask of full house, small straight and large straight
+     * @return Their points
+     */
+    private static int fixedPoints(int mask) {
+        int points = 0;
+        
+        for (int i = 0; i < FIXED_SCORE.length; i++)
+            if ((mask & (1 << i)) != 0)
+                points += FIXED_SCORE[i];
+        
+        return points;
+    }
+    
+    
+    
+    /**
+     * @param category Full house, a straight or Yahtzee
+     * @return Points for an eligible roll
+     */
+    private static int fixedScore(int category) {
+        return (category == YAHTZEE ? 50 : FIXED_SCORE[category - FULL_HOUSE]);
+    }
+    
+    
+    
+    /**
+     * Encode a summed category as zero for open or scratched, else its score above the minimum
+     * 
+     * @param scorecard Scorecard
+     * @param category Category index
+     * @param min Lowest nonzero score
+     * @param values Number of encoded values
+     * @return Digit
+     */
+    private static int encodeSum(YahtzeeScorecard scorecard, int category, int min, int values) {
+        int score = scorecard.getCategoryScore(category);
+        
+        if (score <= 0)
+            return 0;
+        
+        if (score < min || score - min + 1 >= values)
+            throw new IllegalArgumentException("Invalid score " + score + " in category " + category);
+        
+        return score - min + 1;
+    }
+    
+    
+    
+    /**
+     * @param digit Encoded summed category
+     * @param min Lowest nonzero score
+     * @return Score
+     */
+    private static int decodeSum(long digit, int min) { return (digit == 0 ? 0 : (int)digit + min - 1); }
+}
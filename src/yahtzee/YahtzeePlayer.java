@@ -0,0 +1,11 @@
+package yahtzee;
+
+public interface YahtzeePlayer {
+    /**
+     * Choose the next move of a game in progress
+     * 
+     * @param game Game, not over
+     * @return Category index, or YahtzeeSolver.KEEP with a mask of dice to keep
+     */
+    int chooseMove(YahtzeeGame game);
+}
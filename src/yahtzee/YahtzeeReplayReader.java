@@ -0,0 +1,296 @@
+package yahtzee;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+public final class YahtzeeReplayReader implements Closeable {
+    private static final int BUFFER_BYTES = 256 * 1024;
+    
+    // Largest base 6 number of 0 to 5 dice, plus one
+    private static final int[] GROUP_VALUES = { 1, 6, 36, 216, 1296, 7776 };
+    
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    
+    // Two bytes past the buffer let a 13 bit read near its end load three whole bytes
+    private final byte[] data = new byte[BUFFER_BYTES + 2];
+    private final ByteBuffer buffer = ByteBuffer.wrap(data, 0, BUFFER_BYTES).slice();
+    private final YahtzeeGame game;
+    private long bufferPosition, seed, end = Long.MAX_VALUE;
+    private int start = -1, bits, cursor;
+    private boolean done, torn, scoring;
+    
+    
+    
+    /**
+     * Open a log for reading from its first record
+     * 
+     * @param file Log file
+     * @throws IOException If the file cannot be read or is not a replay log
+     */
+    public YahtzeeReplayReader(File file) throws IOException {
+        this.file = file;
+        raf = new RandomAccessFile(file, "r");
+        channel = raf.getChannel();
+        
+        try {
+            buffer.limit(0);
+            fill();
+            
+            if (buffer.remaining() < YahtzeeReplayWriter.HEADER_BYTES)
+                throw new IOException("Not a replay log: " + file);
+            
+            ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (header.getInt() != YahtzeeReplayWriter.MAGIC)
+                throw new IOException("Not a replay log: " + file);
+            if (header.getInt() != YahtzeeReplayWriter.VERSION)
+                throw new IOException("Unsupported replay log version: " + file);
+            
+            end = header.getLong();
+            
+            // An end past the file means a power failure lost records; read up to a torn one
+            if (end < YahtzeeReplayWriter.HEADER_BYTES || end > channel.size())
+                end = channel.size();
+            
+            buffer.limit((int)Math.min(buffer.limit(), end));
+            buffer.position(YahtzeeReplayWriter.HEADER_BYTES);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        
+        // The game rolls before any record is read, the dice keep no faces until then
+        game = new YahtzeeGame(new RecordedDice());
+    }
+    
+    
+    
+    /**
+     * Move to the next record, without replaying it
+     * 
+     * @return Whether there is one; false at the end of the log or at a torn record
+     * @throws IOException If the file cannot be read
+     */
+    public boolean next() throws IOException {
+        start = -1;
+        
+        if (done)
+            return false;
+        
+        if (buffer.remaining() < YahtzeeReplayWriter.MAX_RECORD_BYTES)
+            fill();
+        
+        int recordStart = buffer.position();
+        long eventBits = getVarint(), seed = getVarint();
+        int bytes = (int)((eventBits + 7) >>> 3);
+        
+        if (torn || eventBits < YahtzeeReplayWriter.MIN_GAME_BITS || eventBits > YahtzeeReplayWriter.MAX_GAME_BITS || bytes > buffer.remaining()) {
+            buffer.position(recordStart);
+            done = true;
+            return false;
+        }
+        
+        this.seed = seed;
+        bits = (int)eventBits;
+        start = buffer.position();
+        buffer.position(start + bytes);
+        
+        return true;
+    }
+    
+    
+    
+    /**
+     * Replay the current record through the reader's game; listeners on the game and its
+     * scorecard see every roll and scoring
+     * 
+     * @return Game, at the end of the record; owned by the reader and reused by each replay
+     * @throws IOException If the record holds a move the rules do not allow
+     * @throws IllegalStateException If there is no current record
+     */
+    public YahtzeeGame replay() throws IOException {
+        if (start < 0)
+            throw new IllegalStateException("No current record");
+        
+        cursor = 0;
+        
+        try {
+            game.reset();
+            
+            while (cursor < bits) {
+                if (read(1) == 1) {
+                    int keepMask = read(YahtzeeGame.DICE);
+                    
+                    if (game.getRerolls() == 0 || game.isOver())
+                        throw corrupt("reroll with none left");
+                    
+                    game.roll(keepMask);
+                }
+                else {
+                    int category = read(YahtzeeReplayWriter.CATEGORY_BITS);
+                    
+                    scoring = true;
+                    
+                    if (!game.scoreInCategory(category))
+                        throw corrupt("unavailable category");
+                    
+                    scoring = false;
+                }
+            }
+        } catch (IllegalStateException e) {
+            throw corrupt(e.getMessage());
+        } finally {
+            scoring = false;
+        }
+        
+        return game;
+    }
+    
+    
+    
+    /**
+     * @return Game replays run through, owned by the reader
+     */
+    public YahtzeeGame getGame() { return game; }
+    
+    
+    
+    /**
+     * @return Seed stored with the current record
+     */
+    public long getSeed() { return seed; }
+    
+    
+    
+    /**
+     * @return File offset just past the current record
+     */
+    public long getPosition() { return bufferPosition + buffer.position(); }
+    
+    
+    
+    /**
+     * Close the log file
+     * 
+     * @throws IOException If the file cannot be closed
+     */
+    @Override public void close() throws IOException { raf.close(); }
+    
+    
+    
+    /**
+     * Keep the unread bytes and top the buffer up from the file, up to the end of the records
+     */
+    private void fill() throws IOException {
+        bufferPosition += buffer.position();
+        buffer.compact();
+        buffer.limit((int)Math.min(buffer.capacity(), end - bufferPosition));
+        
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                break;
+        
+        buffer.flip();
+    }
+    
+    
+    
+    /**
+     * @return Unsigned varint; sets torn if it runs past the buffered bytes or 64 bits
+     */
+    private long getVarint() {
+        long value = 0;
+        
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining())
+                break;
+            
+            byte b = buffer.get();
+            value |= (long)(b & 0x7F) << shift;
+            
+            if (b >= 0)
+                return value;
+        }
+        
+        torn = true;
+        return 0;
+    }
+    
+    
+    
+    /**
+     * Read event bits of the current record
+     * 
+     * @param count Bits, at most 13
+     * @return Value
+     * @throws IllegalStateException If the record has fewer bits left
+     */
+    private int read(int count) {
+        if (cursor + count > bits)
+            throw new IllegalStateException("record ends mid-event");
+        
+        int index = start + (cursor >>> 3);
+        int word = (data[index] & 0xFF) | (data[index + 1] & 0xFF) << 8 | (data[index + 2] & 0xFF) << 16;
+        int value = (word >>> (cursor & 7)) & ((1 << count) - 1);
+        
+        cursor += count;
+        return value;
+    }
+    
+    
+    
+    private IOException corrupt(String reason) {
+        return new IOException("Corrupt replay record at " + (bufferPosition + start) + " in " + file + ": " + reason);
+    }
+    
+    
+    
+    /**
+     * Dice that come up as the current record says
+     */
+    private final class RecordedDice implements YahtzeeDiceSource {
+        /**
+         * @return Next recorded die, read as a group of one, as a single rerolled die is written
+         * @throws IllegalStateException If there is no current record or it has no die left
+         */
+        @Override public int roll() {
+            if (start < 0)
+                throw new IllegalStateException("No current record");
+            
+            int face = read(YahtzeeReplayWriter.GROUP_BITS[1]);
+            
+            if (face >= GROUP_VALUES[1])
+                throw new IllegalStateException("dice out of range");
+            
+            return face + 1;
+        }
+        
+        
+        
+        @Override public void roll(int[] dice, int keepMask) {
+            // An unfinished game closed between a scoring and the next roll ends without the roll
+            if (start < 0 || scoring && cursor == bits)
+                return;
+            
+            int count = YahtzeeGame.DICE - Integer.bitCount(keepMask & ((1 << YahtzeeGame.DICE) - 1));
+            int group = read(YahtzeeReplayWriter.GROUP_BITS[count]);
+            
+            if (group >= GROUP_VALUES[count])
+                throw new IllegalStateException("dice out of range");
+            
+            for (int i = 0; i < dice.length; i++)
+                if ((keepMask & (1 << i)) == 0) {
+                    dice[i] = group % YahtzeeGame.DICE_FACES + 1;
+                    group /= YahtzeeGame.DICE_FACES;
+                }
+        }
+    }
+}
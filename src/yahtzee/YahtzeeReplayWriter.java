@@ -0,0 +1,461 @@
+package yahtzee;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import java.util.Arrays;
+
+public final class YahtzeeReplayWriter implements YahtzeeGameListener, Closeable {
+    /*
+     * A 16 byte header holds the magic, the version and the file offset where the written records
+     * end, updated after each write of the buffer; bytes past it are a torn write and are cut off
+     * on open. After the header, each game is one record: the number of event bits and the seed as
+     * unsigned varints, then the event bits packed from the low bit of each byte. A turn starts
+     * with its roll, then each reroll is a 1 bit, the keep mask and the rerolled dice, and the
+     * scoring is a 0 bit and the category. Dice are written as one base 6 number, the lowest
+     * position in the lowest digit. Bonuses are not written, the replay awards them again.
+     */
+    
+    /** Default log file, next to the highscores */
+    public static final String DEFAULT_FILE_NAME = "replays.dat";
+    
+    /** File magic, "YHRL" */
+    static final int MAGIC = 0x5948524C;
+    
+    /** Format version; bump whenever the header or record layout changes */
+    static final int VERSION = 1;
+    
+    /** Header size: magic, version and end of the records; records start here */
+    static final int HEADER_BYTES = 16;
+    
+    /** Fewest event bits in a record: the first roll */
+    static final int MIN_GAME_BITS = 13;
+    
+    /** Bits of a scored category */
+    static final int CATEGORY_BITS = 4;
+    
+    /** Bits of 0 to 5 dice as one base 6 number, the smallest that hold 6^k values */
+    static final int[] GROUP_BITS = { 0, 3, 6, 8, 11, 13 };
+    
+    /** Longest game: every turn rolls, rerolls twice and scores */
+    static final int MAX_GAME_BITS = YahtzeeGame.MAX_TURNS * (GROUP_BITS[YahtzeeGame.DICE]
+            + YahtzeeGame.REROLLS_ALLOWED * (1 + YahtzeeGame.DICE + GROUP_BITS[YahtzeeGame.DICE]) + 1 + CATEGORY_BITS);
+    
+    /** Longest record: two varints of up to 10 bytes and the event bits */
+    static final int MAX_RECORD_BYTES = 10 + 10 + (MAX_GAME_BITS + 7) / 8;
+    
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final byte[] events = new byte[(MAX_GAME_BITS + 7) / 8];
+    private long seed, recordSeed, pending;
+    private int bits, pendingBits;
+    private boolean recording, closed;
+    private long games;
+    private IOException failure;
+    
+    
+    
+    /**
+     * Open a log for appending; only the header is read, and a torn write left by a crash is cut
+     * off
+     * 
+     * @param file Log file, created if it does not exist
+     * @throws IOException If the file is not a replay log or cannot be repaired
+     */
+    public YahtzeeReplayWriter(File file) throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        
+        try {
+            long size = channel.size(), end = HEADER_BYTES;
+            
+            if (size > 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+                
+                while (header.hasRemaining())
+                    if (channel.read(header, header.position()) < 0)
+                        break;
+                
+                header.flip();
+                
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+                    throw new IOException("Not a replay log: " + file);
+                if (header.getInt() != VERSION)
+                    throw new IOException("Unsupported replay log version: " + file);
+                
+                end = header.getLong();
+                
+                // The end is written after the records, it is only ahead if a power failure lost them
+                if (end < HEADER_BYTES || end > size)
+                    end = scan(file);
+                if (size > end)
+                    channel.truncate(end);
+            }
+            
+            channel.position(end);
+            writeEnd();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+    
+    
+    
+    /**
+     * Set the seed stored with the games that start from now on, for reference; replays use the
+     * recorded dice, not the seed
+     * 
+     * @param seed Seed of the dice
+     */
+    public synchronized void setSeed(long seed) { this.seed = seed; }
+    
+    
+    
+    /**
+     * Record a roll; the first roll of a game starts a new record, ending any unfinished one
+     * 
+     * @param game Game, showing the new roll
+     * @param keepMask Mask over dice positions that were kept
+     */
+    @Override public synchronized void rolled(YahtzeeGame game, int keepMask) {
+        if (closed)
+            return;
+        
+        boolean reroll = game.getRerolls() < YahtzeeGame.REROLLS_ALLOWED;
+        
+        if (game.getTurn() == 1 && !reroll) {
+            if (recording)
+                endRecord();
+            
+            recording = true;
+            recordSeed = seed;
+        }
+        
+        if (!recording)
+            return;
+        
+        if (reroll) {
+            write(1, 1);
+            write(keepMask, YahtzeeGame.DICE);
+        }
+        
+        int[] roll = game.getRoll();
+        int group = 0, count = 0;
+        
+        for (int i = roll.length - 1; i >= 0; i--)
+            if ((keepMask & (1 << i)) == 0) {
+                group = group * YahtzeeGame.DICE_FACES + roll[i] - 1;
+                count++;
+            }
+        
+        write(group, GROUP_BITS[count]);
+    }
+    
+    
+    
+    /**
+     * Record a scoring; the last one ends the game's record
+     * 
+     * @param game Game, still at the turn that was scored
+     * @param category Category index
+     */
+    @Override public synchronized void scored(YahtzeeGame game, int category) {
+        if (!recording || closed)
+            return;
+        
+        write(0, 1);
+        write(category, CATEGORY_BITS);
+        
+        if (game.getTurn() == YahtzeeGame.MAX_TURNS)
+            endRecord();
+    }
+    
+    
+    
+    /**
+     * @return Record of the game being recorded, encoded as in the log, to keep with a saved game;
+     *         null if there is none
+     */
+    public synchronized byte[] getUnfinishedRecord() {
+        if (!recording || closed)
+            return null;
+        
+        ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_BYTES);
+        putRecord(record);
+        
+        return Arrays.copyOf(record.array(), record.position());
+    }
+    
+    
+    
+    /**
+     * Continue recording a game from a record taken by getUnfinishedRecord(), ending any game
+     * being recorded
+     * 
+     * @param record Unfinished record
+     * @throws IllegalArgumentException If the record is torn or too long
+     */
+    public synchronized void resumeRecord(byte[] record) {
+        ByteBuffer source = ByteBuffer.wrap(record);
+        long eventBits = getVarint(source), seed = getVarint(source);
+        
+        if (eventBits < MIN_GAME_BITS || eventBits > MAX_GAME_BITS || source.remaining() != (eventBits + 7) / 8)
+            throw new IllegalArgumentException("Not an unfinished replay record");
+        if (closed)
+            return;
+        if (recording)
+            endRecord();
+        
+        source.get(events, 0, source.remaining());
+        bits = (int)eventBits & ~7;
+        pendingBits = (int)eventBits & 7;
+        pending = (pendingBits > 0 ? events[bits >>> 3] & ((1 << pendingBits) - 1) : 0);
+        recordSeed = seed;
+        recording = true;
+    }
+    
+    
+    
+    /**
+     * Drop the game being recorded without logging it, e.g. on exit when a saved game holds its
+     * record
+     */
+    public synchronized void discardRecord() { clearRecord(); }
+    
+    
+    
+    /**
+     * @return Seed stored with the game being recorded
+     */
+    public synchronized long getRecordSeed() { return recordSeed; }
+    
+    
+    
+    /**
+     * @return Records buffered or written since opening, unfinished games included once ended
+     */
+    public synchronized long getGames() { return games; }
+    
+    
+    
+    /**
+     * Write every buffered record to the file, without forcing it to disk
+     * 
+     * @throws IOException If a write failed, now or while recording
+     */
+    public synchronized void flush() throws IOException {
+        if (failure == null)
+            try {
+                drain();
+            } catch (IOException e) {
+                failure = e;
+            }
+        
+        if (failure != null)
+            throw failure;
+    }
+    
+    
+    
+    /**
+     * Record the unfinished game, if any, write everything buffered, force it to disk and close
+     * the file; safe to call from another thread than the game's, such as a shutdown hook, and
+     * events after it are ignored
+     * 
+     * @throws IOException If a write failed, now or while recording
+     */
+    @Override public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        
+        closed = true;
+        
+        if (recording)
+            endRecord();
+        
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+    
+    
+    
+    /**
+     * Append bits to the game's events
+     * 
+     * @param value Value, below 2^count
+     * @param count Bits
+     */
+    private void write(int value, int count) {
+        pending |= (long)value << pendingBits;
+        pendingBits += count;
+        
+        while (pendingBits >= 8) {
+            events[(bits >>> 3)] = (byte)pending;
+            pending >>>= 8;
+            pendingBits -= 8;
+            bits += 8;
+        }
+    }
+    
+    
+    
+    /**
+     * Move the game's record into the buffer, writing the buffer out first if it is full; a
+     * failed write is kept for the next flush, so listeners never throw
+     */
+    private void endRecord() {
+        if (buffer.remaining() < MAX_RECORD_BYTES && failure == null)
+            try {
+                drain();
+            } catch (IOException e) {
+                failure = e;
+            }
+        
+        if (failure == null)
+            putRecord(buffer);
+        
+        clearRecord();
+        games++;
+    }
+    
+    
+    
+    /**
+     * @param target Destination of the game's record: the event bits and seed, then the events
+     */
+    private void putRecord(ByteBuffer target) {
+        int eventBits = bits + pendingBits;
+        
+        if (pendingBits > 0)
+            events[bits >>> 3] = (byte)pending;
+        
+        putVarint(target, eventBits);
+        putVarint(target, recordSeed);
+        target.put(events, 0, (eventBits + 7) >>> 3);
+    }
+    
+    
+    
+    /**
+     * Forget the game's events
+     */
+    private void clearRecord() {
+        recording = false;
+        pending = 0;
+        bits = pendingBits = 0;
+    }
+    
+    
+    
+    /**
+     * Write the buffer, then move the header's end past it
+     */
+    private void drain() throws IOException {
+        if (buffer.position() == 0)
+            return;
+        
+        buffer.flip();
+        
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        
+        buffer.clear();
+        writeEnd();
+    }
+    
+    
+    
+    /**
+     * Write the header with the channel position as the end of the records
+     */
+    private void writeEnd() throws IOException {
+        ByteBuffer header = header(channel.position());
+        
+        while (header.hasRemaining())
+            channel.write(header, header.position());
+    }
+    
+    
+    
+    /**
+     * @param end File offset where the records end
+     * @return Current header, ready to write
+     */
+    private static ByteBuffer header(long end) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(end).flip();
+        
+        return header;
+    }
+    
+    
+    
+    /**
+     * Read every record to find where the last whole one ends; only needed when the header cannot
+     * tell
+     * 
+     * @param file Log file
+     * @return File offset after the last whole record
+     */
+    private static long scan(File file) throws IOException {
+        try (YahtzeeReplayReader reader = new YahtzeeReplayReader(file)) {
+            long end = reader.getPosition();
+            
+            while (reader.next())
+                end = reader.getPosition();
+            
+            return end;
+        }
+    }
+    
+    
+    
+    /**
+     * @param buffer Destination
+     * @param value Value, written as unsigned in 7 bit groups, lowest first
+     */
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte)(value | 0x80));
+            value >>>= 7;
+        }
+        
+        buffer.put((byte)value);
+    }
+    
+    
+    
+    /**
+     * @param source Bytes
+     * @return Unsigned varint
+     * @throws IllegalArgumentException If it runs past the bytes or 64 bits
+     */
+    private static long getVarint(ByteBuffer source) {
+        long value = 0;
+        
+        for (int shift = 0; shift < 64 && source.hasRemaining(); shift += 7) {
+            byte b = source.get();
+            value |= (long)(b & 0x7F) << shift;
+            
+            if (b >= 0)
+                return value;
+        }
+        
+        throw new IllegalArgumentException("Torn varint");
+    }
+}
@@ -0,0 +1,185 @@
+package yahtzee;
+
+public final class YahtzeeRoll {
+    /** Set on rolls packed as face counts rather than faces */
+    public static final int COUNTS_FLAG = 1 << 30;
+    
+    private static final int DICE = 5;
+    private static final int FACES = 6;
+    private static final int BITS = 3;
+    private static final int MASK = 7;
+    private static final int[] POW6 = { 1, 6, 36, 216, 1296, 7776 };
+    
+    
+    
+    private YahtzeeRoll() {}
+    
+    
+    
+    /**
+     * Pack five dice as 3-bit faces, die i in bits 3i to 3i+2
+     * 
+     * @param roll Dice values
+     * @return Packed roll
+     */
+    public static int packFaces(int[] roll) {
+        if (roll.length != DICE)
+            throw new IllegalArgumentException("Expected " + DICE + " dice, got " + roll.length);
+        
+        int packed = 0;
+        
+        for (int i = 0; i < DICE; i++)
+            packed |= roll[i] << (i * BITS);
+        
+        return packed;
+    }
+    
+    
+    
+    /**
+     * Pack dice as 3-bit face counts, the count of face f in bits 3(f-1) to 3f-1
+     * 
+     * @param roll Dice values
+     * @return Packed roll
+     */
+    public static int packCounts(int[] roll) {
+        int packed = COUNTS_FLAG;
+        
+        for (int i : roll)
+            packed += 1 << ((i-1) * BITS);
+        
+        return packed;
+    }
+    
+    
+    
+    /**
+     * Convert a packed roll to the face count form
+     * 
+     * @param packed Packed roll
+     * @return Packed roll in face count form
+     */
+    public static int toCounts(int packed) {
+        if (isCounts(packed))
+            return packed;
+        
+        int counts = COUNTS_FLAG;
+        
+        for (int i = 0; i < DICE; i++)
+            counts += 1 << ((((packed >>> (i * BITS)) & MASK) - 1) * BITS);
+        
+        return counts;
+    }
+    
+    
+    
+    /**
+     * Unpack a roll into dice values; face count rolls come out in ascending order
+     * 
+     * @param packed Packed roll
+     * @param roll Destination for dice values
+     * @return Number of dice written
+     */
+    public static int unpack(int packed, int[] roll) {
+        if (!isCounts(packed)) {
+            for (int i = 0; i < DICE; i++)
+                roll[i] = (packed >>> (i * BITS)) & MASK;
+            
+            return DICE;
+        }
+        
+        int n = 0;
+        
+        for (int face = 1; face <= FACES; face++)
+            for (int c = count(packed, face); c > 0; c--)
+                roll[n++] = face;
+        
+        return n;
+    }
+    
+    
+    
+    /**
+     * @param packed Packed roll
+     * @return Whether the roll is packed as face counts
+     */
+    public static boolean isCounts(int packed) { return (packed & COUNTS_FLAG) != 0; }
+    
+    
+    
+    /**
+     * @param packed Roll packed as faces
+     * @param die Die position
+     * @return Face of that die
+     */
+    public static int face(int packed, int die) { return (packed >>> (die * BITS)) & MASK; }
+    
+    
+    
+    /**
+     * @param packed Packed roll
+     * @param face Face value
+     * @return Number of dice showing that face
+     */
+    public static int count(int packed, int face) {
+        return (toCounts(packed) >>> ((face-1) * BITS)) & MASK;
+    }
+    
+    
+    
+    /**
+     * @param packed Packed roll
+     * @return Number of dice in the roll
+     */
+    public static int size(int packed) {
+        if (!isCounts(packed))
+            return DICE;
+        
+        int n = 0;
+        
+        for (int face = 1; face <= FACES; face++)
+            n += count(packed, face);
+        
+        return n;
+    }
+    
+    
+    
+    /**
+     * Get the lookup table index of a packed roll
+     * 
+     * @param packed Packed roll
+     * @return Index in [0, YahtzeeRollTable.ROLLS), or -1 if the roll is not five dice
+     */
+    public static int indexOf(int packed) {
+        int key = 0;
+        
+        if (isCounts(packed)) {
+            if (size(packed) != DICE)
+                return -1;
+            
+            for (int face = 1; face <= FACES; face++)
+                key += ((packed >>> ((face-1) * BITS)) & MASK) * POW6[face-1];
+        }
+        else
+            for (int i = 0; i < DICE; i++)
+                key += POW6[((packed >>> (i * BITS)) & MASK) - 1];
+        
+        return YahtzeeRollTable.indexOfKey(key);
+    }
+    
+    
+    
+    /**
+     * @param index Lookup table index
+     * @return Roll in face count form
+     */
+    public static int fromIndex(int index) {
+        int packed = COUNTS_FLAG;
+        
+        for (int i = 0; i < DICE; i++)
+            packed += 1 << ((YahtzeeRollTable.face(index, i) - 1) * BITS);
+        
+        return packed;
+    }
+}
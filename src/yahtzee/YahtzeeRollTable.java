@@ -0,0 +1,335 @@
+package yahtzee;
+
+public final class YahtzeeRollTable {
+    /** Number of distinct sorted five-die rolls */
+    public static final int ROLLS = 252;
+    
+    /** Number of scorecard categories */
+    public static final int CATEGORIES = 13;
+    
+    private static final int DICE = 5;
+    private static final int FACES = 6;
+    private static final int[] POW6 = { 1, 6, 36, 216, 1296, 7776 };
+    
+    private static final short[] KEY_INDEX = new short[POW6[5] * FACES];
+    private static final int[][] FACES_BY_INDEX = new int[ROLLS][];
+    private static final int[] KEY_BY_INDEX = new int[ROLLS];
+    private static final int[] ELIGIBILITY = new int[ROLLS];
+    private static final int[] SCORES = new int[ROLLS * CATEGORIES];
+    private static final double[] PROBABILITY = new double[ROLLS];
+    
+    
+    
+    static {
+        java.util.Arrays.fill(KEY_INDEX, (short)-1);
+        
+        // Enumerate sorted rolls in lexicographic order
+        int index = 0;
+        
+        for (int a = 1; a <= FACES; a++)
+            for (int b = a; b <= FACES; b++)
+                for (int c = b; c <= FACES; c++)
+                    for (int d = c; d <= FACES; d++)
+                        for (int e = d; e <= FACES; e++) {
+                            int[] roll = { a, b, c, d, e };
+                            int key = keyOf(roll);
+                            
+                            KEY_INDEX[key] = (short)index;
+                            FACES_BY_INDEX[index] = roll;
+                            KEY_BY_INDEX[index] = key;
+                            PROBABILITY[index] = permutations(key) / 7776.0;
+                            
+                            // Score every category once with the tally rules
+                            for (int category = 0; category < CATEGORIES; category++) {
+                                if (tallyEligible(category, roll))
+                                    ELIGIBILITY[index] |= 1 << category;
+                                
+                                SCORES[index * CATEGORIES + category] = tallyScore(category, roll);
+                            }
+                            
+                            index++;
+                        }
+    }
+    
+    
+    
+    private YahtzeeRollTable() {}
+    
+    
+    
+    /**
+     * Get the table index of a roll, independent of dice order
+     * 
+     * @param roll Dice values
+     * @return Index in [0, ROLLS), or -1 if the roll is not five dice
+     */
+    public static int indexOf(int[] roll) {
+        if (roll.length != DICE)
+            return -1;
+        
+        return KEY_INDEX[keyOf(roll)];
+    }
+    
+    
+    
+    /**
+     * Get the table index of a roll from its face count key
+     * 
+     * @param key Sum of 6^(face-1) over all dice
+     * @return Index in [0, ROLLS), or -1 if the key is not five dice
+     */
+    public static int indexOfKey(int key) { return KEY_INDEX[key]; }
+    
+    
+    
+    /**
+     * @param index Roll index
+     * @return Face count key of the roll
+     */
+    public static int keyOf(int index) { return KEY_BY_INDEX[index]; }
+    
+    
+    
+    /**
+     * @param index Roll index
+     * @return Probability of rolling these dice with five fresh dice
+     */
+    public static double probability(int index) { return PROBABILITY[index]; }
+    
+    
+    
+    /**
+     * @param index Roll index
+     * @param die Die position in sorted order
+     * @return Face of that die
+     */
+    public static int face(int index, int die) { return FACES_BY_INDEX[index][die]; }
+    
+    
+    
+    /**
+     * @param index Roll index
+     * @param category Category index
+     * @return Whether the roll is eligible for the category
+     */
+    public static boolean eligible(int index, int category) {
+        return category >= 0 && category < CATEGORIES && (ELIGIBILITY[index] & (1 << category)) != 0;
+    }
+    
+    
+    
+    /**
+     * @param index Roll index
+     * @return Bitmask of categories the roll is eligible for
+     */
+    public static int eligibility(int index) { return ELIGIBILITY[index]; }
+    
+    
+    
+    /**
+     * @param index Roll index
+     * @param category Category index
+     * @return Score the roll yields in the category
+     */
+    public static int score(int index, int category) {
+        if (category < 0 || category >= CATEGORIES)
+            return 0;
+        
+        return SCORES[index * CATEGORIES + category];
+    }
+    
+    
+    
+    /**
+     * Copy the scores of a roll in every category
+     * 
+     * @param index Roll index
+     * @param scores Destination for the 13 scores
+     * @return Bitmask of categories the roll is eligible for
+     */
+    public static int scores(int index, int[] scores) {
+        System.arraycopy(SCORES, index * CATEGORIES, scores, 0, CATEGORIES);
+        return ELIGIBILITY[index];
+    }
+    
+    
+    
+    /**
+     * Compute the face count key of a roll
+     * 
+     * @param roll Dice values
+     * @return Sum of 6^(face-1) over all dice
+     */
+    static int keyOf(int[] roll) {
+        int key = 0;
+        
+        for (int i : roll)
+            key += POW6[i-1];
+        
+        return key;
+    }
+    
+    
+    
+    /**
+     * Count the orderings of the dice behind a face count key
+     * 
+     * @param key Face count key
+     * @return Number of distinct ordered rolls
+     */
+    static int permutations(int key) {
+        int[] factorial = { 1, 1, 2, 6, 24, 120 };
+        int n = 0, divisor = 1;
+        
+        for (int face = 0; face < FACES; face++) {
+            n += key % FACES;
+            divisor *= factorial[key % FACES];
+            key /= FACES;
+        }
+        
+        return factorial[n] / divisor;
+    }
+    
+    
+    
+    /**
+     * Check eligibility by tallying the roll; used to build the table and for rolls that are not five dice
+     * 
+     * @param category Category index
+     * @param roll Dice values
+     * @return Eligibility
+     */
+    static boolean tallyEligible(int category, int[] roll) {
+        // Tally face counts
+        int[] counts = new int[FACES];
+        
+        for (int i : roll)
+            counts[i-1]++;
+        
+        // Calculate length of largest sequence
+        int inARow = 0, record = 0;
+        
+        for (int i = 0; i < counts.length; i++)
+            if (counts[i] > 0)
+                inARow++;
+            else {
+                if (inARow > record)
+                    record = inARow;
+                
+                inARow = 0;
+            }
+        
+        if (inARow > record)
+            record = inARow;
+        
+        // Categories 1-6
+        if (category >= 0 && category < 6)
+            return true;
+        
+        switch (category) {
+            // Three of a kind
+            case 6:
+                return (arrayContains(counts, 3));
+            
+            // Four of a kind
+            case 7:
+                return (arrayContains(counts, 4));
+            
+            // Full house
+            case 8:
+                return (arrayContains(counts, 3) && arrayContains(counts, 2));
+            
+            // Small straight
+            case 9:
+                return (record >= 4);
+            
+            // Large straight
+            case 10:
+                return (record >= 5);
+            
+            // Yahtzee
+            case 11:
+                return (arrayContains(counts, 5));
+            
+            // Chance
+            case 12:
+                return true;
+        }
+        
+        return false;
+    }
+    
+    
+    
+    /**
+     * Compute a category score by tallying the roll; used to build the table and for rolls that are not five dice
+     * 
+     * @param category Category index
+     * @param roll Dice values
+     * @return Potential score
+     */
+    static int tallyScore(int category, int[] roll) {
+        // Calculate dice sum
+        int diceSum = 0;
+        
+        for (int i : roll)
+            diceSum += i;
+        
+        // Categories 1-6
+        if (category >= 0 && category < 6) {
+            int score = 0;
+            
+            for (int i : roll)
+                if (i == category + 1)
+                    score += category + 1;
+            
+            return score;
+        }
+        
+        if (!tallyEligible(category, roll))
+            return 0;
+        
+        switch (category) {
+            // Three of a kind, four of a kind, chance
+            case 6:
+            case 7:
+            case 12:
+                return diceSum;
+            
+            // Full house
+            case 8:
+                return 25;
+            
+            // Small straight
+            case 9:
+                return 30;
+            
+            // Large straight
+            case 10:
+                return 40;
+            
+            // Yahtzee
+            case 11:
+                return 50;
+        }
+        
+        return 0;
+    }
+    
+    
+    
+    /**
+     * Check if an int[] contains some int
+     * 
+     * @param arr Array
+     * @param target Target
+     * @return Whether or not target was found in array
+     */
+    private static boolean arrayContains(int[] arr, int target) {
+        for (int i : arr)
+            if (i == target)
+                return true;
+        
+        return false;
+    }
+}
@@ -0,0 +1,221 @@
+package yahtzee;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.zip.CRC32;
+
+public final class YahtzeeSavedGame {
+    /*
+     * Little-endian: magic and version, then a byte per category score, the bonus as a short, a
+     * byte per die, the turn, rerolls, Yahtzees and lower bonus flag as bytes, the length of the
+     * game's unfinished replay record as a short and the record, and a CRC-32 of everything before
+     * it.
+     */
+    
+    /** Default save file, next to the highscores */
+    public static final String DEFAULT_FILE_NAME = "game.sav";
+    
+    /** File magic, "YHGS" */
+    static final int MAGIC = 0x59484753;
+    
+    /** Format version; bump whenever the layout changes */
+    static final int VERSION = 1;
+    
+    /** File size without a replay record */
+    static final int MIN_BYTES = 4 + 4 + YahtzeeRollTable.CATEGORIES + 2 + YahtzeeGame.DICE + 4 + 2 + 4;
+    
+    /** File size with the longest replay record */
+    static final int MAX_BYTES = MIN_BYTES + YahtzeeReplayWriter.MAX_RECORD_BYTES;
+    
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    
+    
+    private YahtzeeSavedGame() {}
+    
+    
+    
+    /**
+     * Save a game, atomically; a crash leaves either the old or the new save in place. The file
+     * is not forced to disk, so saving after every move stays cheap, and a save lost to a power
+     * failure is rejected by its checksum on load
+     * 
+     * @param file Save file
+     * @param game Game to save
+     * @param replays Replay log recording the game, whose unfinished record is saved with it; or
+     *        null
+     * @return Whether the save holds the game's replay record
+     * @throws IOException If the file cannot be written
+     */
+    public static boolean save(File file, YahtzeeGame game, YahtzeeReplayWriter replays) throws IOException {
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        byte[] record = (replays == null ? null : replays.getUnfinishedRecord());
+        ByteBuffer buffer = encode(game, record);
+        
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        return (record != null);
+    }
+    
+    
+    
+    /**
+     * Load a saved game into a game, replacing its state, and continue its replay record
+     * 
+     * @param file Save file
+     * @param game Game to restore into; its dice source is kept
+     * @param replays Replay log to continue the game's record in, if the save holds one; or null
+     * @return Whether there was a save; the game and log are unchanged if not
+     * @throws IOException If the file cannot be read or does not hold a valid save
+     */
+    public static boolean load(File file, YahtzeeGame game, YahtzeeReplayWriter replays) throws IOException {
+        ByteBuffer buffer;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() < MIN_BYTES || channel.size() > MAX_BYTES)
+                throw new IOException("Not a saved game: " + file);
+            
+            buffer = ByteBuffer.allocate((int)channel.size()).order(ORDER);
+            
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    throw new IOException("Truncated saved game: " + file);
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        
+        buffer.flip();
+        decode(buffer, game, replays, file);
+        
+        return true;
+    }
+    
+    
+    
+    /**
+     * @param game Game
+     * @param record Game's unfinished replay record, or null
+     * @return Complete save, ready to write
+     */
+    static ByteBuffer encode(YahtzeeGame game, byte[] record) {
+        ByteBuffer buffer = ByteBuffer.allocate(MIN_BYTES + (record == null ? 0 : record.length)).order(ORDER);
+        YahtzeeScorecard scorecard = game.getScorecard();
+        
+        buffer.putInt(MAGIC).putInt(VERSION);
+        
+        for (int c = 0; c < YahtzeeRollTable.CATEGORIES; c++)
+            buffer.put((byte)scorecard.getCategoryScore(c));
+        
+        buffer.putShort((short)scorecard.getBonusScore());
+        
+        for (int face : game.getRoll())
+            buffer.put((byte)face);
+        
+        buffer.put((byte)game.getTurn()).put((byte)game.getRerolls()).put((byte)game.getYahtzees());
+        buffer.put((byte)(game.isGrantedLowerBonus() ? 1 : 0));
+        
+        if (record == null)
+            buffer.putShort((short)0);
+        else
+            buffer.putShort((short)record.length).put(record);
+        
+        buffer.putInt((int)checksum(buffer, 0, buffer.position()));
+        buffer.flip();
+        
+        return buffer;
+    }
+    
+    
+    
+    /**
+     * Check a save and restore it into a game and replay log
+     * 
+     * @param buffer Complete save
+     * @param game Game to restore into
+     * @param replays Replay log to continue the game's record in, or null
+     * @param file Save file, for messages
+     * @throws IOException If the save is corrupt or from another version
+     */
+    static void decode(ByteBuffer buffer, YahtzeeGame game, YahtzeeReplayWriter replays, File file) throws IOException {
+        int bytes = buffer.limit();
+        
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not a saved game: " + file);
+        if (buffer.getInt() != VERSION)
+            throw new IOException("Unsupported saved game version: " + file);
+        if ((int)checksum(buffer, 0, bytes - 4) != buffer.getInt(bytes - 4))
+            throw new IOException("Corrupt saved game: " + file);
+        
+        int[] categories = new int[YahtzeeRollTable.CATEGORIES], roll = new int[YahtzeeGame.DICE];
+        
+        for (int c = 0; c < categories.length; c++)
+            categories[c] = buffer.get();
+        
+        int bonus = buffer.getShort();
+        
+        for (int i = 0; i < roll.length; i++)
+            roll[i] = buffer.get();
+        
+        int turn = buffer.get(), rerolls = buffer.get(), yahtzees = buffer.get();
+        boolean grantedLowerBonus = (buffer.get() != 0);
+        byte[] record = new byte[buffer.getShort() & 0xFFFF];
+        
+        if (record.length != bytes - MIN_BYTES)
+            throw new IOException("Corrupt saved game: " + file);
+        
+        buffer.get(record);
+        
+        // Values out of range cannot come from a game
+        boolean valid = turn >= 1 && turn <= YahtzeeGame.MAX_TURNS + 1 && rerolls >= 0 && rerolls <= YahtzeeGame.REROLLS_ALLOWED
+                && yahtzees >= 0 && yahtzees < YahtzeeGame.MAX_TURNS && bonus >= 0;
+        
+        for (int score : categories)
+            valid &= (score >= -1);
+        for (int face : roll)
+            valid &= (face >= 1 && face <= YahtzeeGame.DICE_FACES);
+        
+        if (!valid)
+            throw new IOException("Corrupt saved game: " + file);
+        
+        // The record is checked before anything is restored
+        if (replays != null && record.length > 0)
+            try {
+                replays.resumeRecord(record);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt saved game: " + file, e);
+            }
+        
+        game.restore(categories, bonus, roll, turn, rerolls, yahtzees, grantedLowerBonus);
+    }
+    
+    
+    
+    /**
+     * @param buffer Bytes
+     * @param from First byte
+     * @param to Byte after the last
+     * @return CRC-32 of the bytes
+     */
+    private static long checksum(ByteBuffer buffer, int from, int to) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), from, to - from);
+        
+        return crc.getValue();
+    }
+}
@@ -3,6 +3,17 @@ package yahtzee;
 public class YahtzeeScore implements Comparable<YahtzeeScore> {
     private String playerName;
     private int score;
+    private long timestamp, seed;
+    
+    
+    
+    /**
+     * Wrapper for a highscore of unknown time and dice
+     * 
+     * @param playerName Player name
+     * @param score Score
+     */
+    public YahtzeeScore(String playerName, int score) { this(playerName, score, 0, 0); }
     
     
     
@@ -11,10 +22,14 @@ public class YahtzeeScore implements Comparable<YahtzeeScore> {
      * 
      * @param playerName Player name
      * @param score Score
+     * @param timestamp When the game ended, in milliseconds since the epoch, or 0 if unknown
+     * @param seed Seed of the game's dice, or 0 if unknown
      */
-    public YahtzeeScore(String playerName, int score) {
+    public YahtzeeScore(String playerName, int score, long timestamp, long seed) {
         this.playerName = playerName;
         this.score = score;
+        this.timestamp = timestamp;
+        this.seed = seed;
     }
     
     
@@ -33,6 +48,20 @@ public class YahtzeeScore implements Comparable<YahtzeeScore> {
     
     
     
+    /**
+     * @return When the game ended, in milliseconds since the epoch, or 0 if unknown
+     */
+    public long getTimestamp() { return timestamp; }
+    
+    
+    
+    /**
+     * @return Seed of the game's dice, or 0 if unknown
+     */
+    public long getSeed() { return seed; }
+    
+    
+    
     /**
      * Get ordering
      * 
@@ -1,14 +1,58 @@
 package yahtzee;
 
 public class YahtzeeScorecard {
+    private static final YahtzeeScorecardListener[] NO_LISTENERS = {};
+    
     private int[] card = new int[13];
-    private int bonus;
+    private int bonus, lowerScore, upperScore;
+    private YahtzeeScorecardListener[] listeners = NO_LISTENERS;
     
     
     
     public YahtzeeScorecard() {
+        reset();
+    }
+    
+    
+    
+    /**
+     * Clear every category and the bonus for a new game
+     */
+    public void reset() {
         for (int i = 0; i < card.length; i++)
-            card[i] = -1;
+            setCategoryScore(i, -1);
+        
+        setBonusScore(0);
+    }
+    
+    
+    
+    /**
+     * Be told of every change to the scorecard, on the thread making it
+     * 
+     * @param listener Listener
+     */
+    public void addListener(YahtzeeScorecardListener listener) {
+        YahtzeeScorecardListener[] grown = java.util.Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+    
+    
+    
+    /**
+     * @param listener Listener to stop telling
+     */
+    public void removeListener(YahtzeeScorecardListener listener) {
+        for (int i = 0; i < listeners.length; i++)
+            if (listeners[i] == listener) {
+                YahtzeeScorecardListener[] shrunk = new YahtzeeScorecardListener[listeners.length - 1];
+                
+                System.arraycopy(listeners, 0, shrunk, 0, i);
+                System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+                listeners = shrunk;
+                return;
+            }
     }
 
     
@@ -21,63 +65,30 @@ public class YahtzeeScorecard {
      * @return Eligibility
      */
     public static boolean eligibleForCategory(int category, int[] roll) {
-        // Tally face counts
-        int[] counts = new int[6];
+        int index = YahtzeeRollTable.indexOf(roll);
         
-        for (int i : roll)
-            counts[i-1]++;
-
-        // Calculate length of largest sequence
-        int inARow = 0, record = 0;
-
-        for (int i = 0; i < counts.length; i++)
-            if (counts[i] > 0)
-                inARow++;
-            else {
-                if (inARow > record)
-                    record = inARow;
-                
-                inARow = 0;
-            }
+        if (index == -1)
+            return YahtzeeRollTable.tallyEligible(category, roll);
         
-        if (inARow > record)
-            record = inARow;
-
-        // Categories 1-6
-        if (category >= 0 && category < 6)
-                return true;
-
-        switch (category) {
-            // Three of a kind
-            case 6:
-                return (arrayContains(counts, 3));
-
-            // Four of a kind
-            case 7:
-                return (arrayContains(counts, 4));
-
-            // Full house
-            case 8:
-                return (arrayContains(counts, 3) && arrayContains(counts, 2));
-
-            // Small straight
-            case 9:
-                return (record >= 4);
-
-            // Large straight
-            case 10:
-                return (record >= 5);
-
-            // Yahtzee
-            case 11:
-                return (arrayContains(counts, 5));
-
-            // Chance
-            case 12:
-                return true;
-        }
-
-        return false;
+        return YahtzeeRollTable.eligible(index, category);
+    }
+    
+    
+    
+    /**
+     * Check if a packed roll will score in some category
+     * 
+     * @param category Category index
+     * @param packedRoll Roll packed by YahtzeeRoll
+     * @return Eligibility
+     */
+    public static boolean eligibleForCategory(int category, int packedRoll) {
+        int index = YahtzeeRoll.indexOf(packedRoll);
+        
+        if (index == -1)
+            return YahtzeeRollTable.tallyEligible(category, unpack(packedRoll));
+        
+        return YahtzeeRollTable.eligible(index, category);
     }
     
     
@@ -90,68 +101,75 @@ public class YahtzeeScorecard {
      * @return Potential score
      */
     public int getPotentialCategoryScore(int category, int[] roll) {
-        // Calculate dice sum
-        int diceSum = 0;
-
-        for (int i : roll)
-            diceSum += i;
-
-        // Categories 1-6
-        if (category >= 0 && category < 6) {
-            int score = 0;
-
-            for (int i : roll)
-                if (i == category + 1)
-                    score += category + 1;
-
-            return score;
-        }
-
-        switch (category) {
-            // Three of a kind
-            case 6:
-                if (eligibleForCategory(category, roll))
-                    return diceSum;
-            break;
-
-            // Four of a kind
-            case 7:
-                if (eligibleForCategory(category, roll))
-                    return diceSum;
-            break;
-
-            // Full house
-            case 8:
-                if (eligibleForCategory(category, roll))
-                    return 25;
-            break;
-
-            // Small straight
-            case 9:
-                if (eligibleForCategory(category, roll))
-                    return 30;
-            break;
-
-            // Large straight
-            case 10:
-                if (eligibleForCategory(category, roll))
-                    return 40;
-            break;
+        int index = YahtzeeRollTable.indexOf(roll);
+        
+        if (index == -1)
+            return YahtzeeRollTable.tallyScore(category, roll);
+        
+        return YahtzeeRollTable.score(index, category);
+    }
 
-            // Yahtzee
-            case 11:
-                if (eligibleForCategory(category, roll))
-                    return 50;
-            break;
+    
+    
+    /**
+     * Get the score that a certain packed roll would yield in a certain category
+     * 
+     * @param category Category index
+     * @param packedRoll Roll packed by YahtzeeRoll
+     * @return Potential score
+     */
+    public int getPotentialCategoryScore(int category, int packedRoll) {
+        int index = YahtzeeRoll.indexOf(packedRoll);
+        
+        if (index == -1)
+            return YahtzeeRollTable.tallyScore(category, unpack(packedRoll));
+        
+        return YahtzeeRollTable.score(index, category);
+    }
 
-            // Chance
-            case 12:
-                if (eligibleForCategory(category, roll))
-                    return diceSum;
-            break;
+    
+    
+    /**
+     * Get the scores that a roll would yield in every category in one pass
+     * 
+     * @param roll Dice values
+     * @param scores Destination for the 13 potential scores
+     * @return Bitmask of the categories the roll is eligible for
+     */
+    public int getPotentialCategoryScores(int[] roll, int[] scores) {
+        int index = YahtzeeRollTable.indexOf(roll);
+        
+        if (index != -1)
+            return YahtzeeRollTable.scores(index, scores);
+        
+        int eligibility = 0;
+        
+        for (int i = 0; i < card.length; i++) {
+            scores[i] = YahtzeeRollTable.tallyScore(i, roll);
+            
+            if (YahtzeeRollTable.tallyEligible(i, roll))
+                eligibility |= 1 << i;
         }
-
-        return 0;
+        
+        return eligibility;
+    }
+    
+    
+    
+    /**
+     * Get the scores that a packed roll would yield in every category in one pass
+     * 
+     * @param packedRoll Roll packed by YahtzeeRoll
+     * @param scores Destination for the 13 potential scores
+     * @return Bitmask of the categories the roll is eligible for
+     */
+    public int getPotentialCategoryScores(int packedRoll, int[] scores) {
+        int index = YahtzeeRoll.indexOf(packedRoll);
+        
+        if (index == -1)
+            return getPotentialCategoryScores(unpack(packedRoll), scores);
+        
+        return YahtzeeRollTable.scores(index, scores);
     }
 
     
@@ -167,16 +185,35 @@ public class YahtzeeScorecard {
         // Verify eligibility
         if (card[category] != -1)
             return 0;
-        else if (!eligibleForCategory(category, roll))
+        
+        int index = YahtzeeRollTable.indexOf(roll);
+        
+        if (index == -1 ? !YahtzeeRollTable.tallyEligible(category, roll) : !YahtzeeRollTable.eligible(index, category))
             return 1;
 
         // Augment score
-        card[category] = getPotentialCategoryScore(category, roll);
+        setCategoryScore(category, index == -1 ? YahtzeeRollTable.tallyScore(category, roll) : YahtzeeRollTable.score(index, category));
         return 2;
     }
 
     
     
+    /**
+     * Fill a category with zero, as when choosing it for a roll that is not eligible
+     * 
+     * @param category Category index
+     * @return Whether the category was open
+     */
+    public boolean scratchCategory(int category) {
+        if (card[category] != -1)
+            return false;
+        
+        setCategoryScore(category, 0);
+        return true;
+    }
+
+    
+    
     /**
      * Get the score in some category
      * 
@@ -188,16 +225,16 @@ public class YahtzeeScorecard {
     
     
     /**
-     * @return Lower section score
+     * @return Lower section score, the first six categories
      */
-    public int getLowerScore() {
-        int total = 0;
-        
-        for (int i = 0; i < 6; i++)
-            total += card[i];
-        
-        return total;
-    }
+    public int getLowerScore() { return lowerScore; }
+    
+    
+    
+    /**
+     * @return Upper section score, the last seven categories
+     */
+    public int getUpperScore() { return upperScore; }
 
     
     
@@ -206,21 +243,14 @@ public class YahtzeeScorecard {
      * 
      * @return Total score
      */
-    public int getTotalScore() {
-        int sum = 0;
-
-        for (int category : card)
-            sum += (category == -1 ? 0 : category);
-
-        return sum + bonus;
-    }
+    public int getTotalScore() { return lowerScore + upperScore + bonus; }
     
     
     
     /**
      * Add to the bonus score
      */
-    public void incrementBonus(int inc) { bonus += inc; }
+    public void incrementBonus(int inc) { setBonusScore(bonus + inc); }
     
     
     
@@ -228,21 +258,59 @@ public class YahtzeeScorecard {
      * @return Bonus score
      */
     public int getBonusScore() { return bonus; }
-
+    
     
     
     /**
-     * Check if an int[] contains some int
+     * Overwrite the score in some category, keeping the section sums and telling the listeners
      * 
-     * @param arr Array
-     * @param target Target
-     * @return Whether or not target was found in array
-     */
-    private static boolean arrayContains(int[] arr, int target) {
-        for (int i : arr)
-            if (i == target)
-                return true;
-
-        return false;
+     * @param category Category index
+     * @param score Score, or -1 for open
+     */
+    void setCategoryScore(int category, int score) {
+        int old = card[category], delta = Math.max(score, 0) - Math.max(old, 0);
+        
+        card[category] = score;
+        
+        if (category < 6)
+            lowerScore += delta;
+        else
+            upperScore += delta;
+        
+        if (old != score)
+            for (YahtzeeScorecardListener listener : listeners)
+                listener.categoryChanged(this, category, old, score);
+    }
+    
+    
+    
+    /**
+     * Overwrite the bonus score, telling the listeners
+     * 
+     * @param bonus Bonus score
+     */
+    void setBonusScore(int bonus) {
+        int old = this.bonus;
+        
+        this.bonus = bonus;
+        
+        if (old != bonus)
+            for (YahtzeeScorecardListener listener : listeners)
+                listener.bonusChanged(this, old, bonus);
+    }
+    
+    
+    
+    /**
+     * Unpack a roll that has no lookup table entry
+     * 
+     * @param packedRoll Roll packed by YahtzeeRoll
+     * @return Dice values
+     */
+    private static int[] unpack(int packedRoll) {
+        int[] roll = new int[YahtzeeRoll.size(packedRoll)];
+        YahtzeeRoll.unpack(packedRoll, roll);
+        
+        return roll;
     }
 }
@@ -0,0 +1,24 @@
+package yahtzee;
+
+public interface YahtzeeScorecardListener {
+    /**
+     * Called after a category is scored, scratched, cleared or restored
+     * 
+     * @param scorecard Scorecard, whose totals already include the change
+     * @param category Category index
+     * @param oldScore Previous score, or -1 for open
+     * @param newScore New score, or -1 for open
+     */
+    void categoryChanged(YahtzeeScorecard scorecard, int category, int oldScore, int newScore);
+    
+    
+    
+    /**
+     * Called after the bonus score changes
+     * 
+     * @param scorecard Scorecard, whose totals already include the change
+     * @param oldBonus Previous bonus score
+     * @param newBonus New bonus score
+     */
+    void bonusChanged(YahtzeeScorecard scorecard, int oldBonus, int newBonus);
+}
@@ -0,0 +1,42 @@
+package yahtzee;
+
+public class YahtzeeScriptedDice implements YahtzeeDiceSource {
+    private final int[] faces;
+    private int next;
+    
+    
+    
+    /**
+     * Dice that come up in a fixed order, for tests and replays
+     * 
+     * @param faces Faces in the order they are rolled, each 1 to 6
+     * @throws IllegalArgumentException If a face is out of range
+     */
+    public YahtzeeScriptedDice(int... faces) {
+        for (int face : faces)
+            if (face < 1 || face > YahtzeeGame.DICE_FACES)
+                throw new IllegalArgumentException("Not a die face: " + face);
+        
+        this.faces = faces.clone();
+    }
+    
+    
+    
+    /**
+     * @return Next scripted face
+     * @throws IllegalStateException If the script has run out
+     */
+    @Override public int roll() {
+        if (next == faces.length)
+            throw new IllegalStateException("Scripted dice exhausted after " + faces.length + " rolls");
+        
+        return faces[next++];
+    }
+    
+    
+    
+    /**
+     * @return Faces not yet rolled
+     */
+    public int remaining() { return faces.length - next; }
+}
@@ -0,0 +1,140 @@
+package yahtzee;
+
+public class YahtzeeSimulationResult {
+    private final long[] histogram = new long[YahtzeeGame.MAX_SCORE + 1];
+    private long games;
+    private double sum, sumOfSquares;
+    
+    
+    
+    /**
+     * Record a finished game
+     * 
+     * @param score Final score
+     */
+    public void add(int score) {
+        histogram[score]++;
+        games++;
+        sum += score;
+        sumOfSquares += (double)score * score;
+    }
+    
+    
+    
+    /**
+     * Fold another result into this one
+     * 
+     * @param other Result to add
+     */
+    public void merge(YahtzeeSimulationResult other) {
+        for (int score = 0; score < histogram.length; score++)
+            histogram[score] += other.histogram[score];
+        
+        games += other.games;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+    }
+    
+    
+    
+    /**
+     * @return Games recorded
+     */
+    public long getGames() { return games; }
+    
+    
+    
+    /**
+     * @param score Final score
+     * @return Number of games that ended with that score
+     */
+    public long getCount(int score) { return histogram[score]; }
+    
+    
+    
+    /**
+     * @return Mean final score
+     */
+    public double getMean() { return sum / games; }
+    
+    
+    
+    /**
+     * @return Standard deviation of the final score
+     */
+    public double getStandardDeviation() {
+        double mean = getMean();
+        return Math.sqrt(Math.max(0, sumOfSquares / games - mean * mean));
+    }
+    
+    
+    
+    /**
+     * @return Lowest final score, or -1 without games
+     */
+    public int getMin() {
+        for (int score = 0; score < histogram.length; score++)
+            if (histogram[score] > 0)
+                return score;
+        
+        return -1;
+    }
+    
+    
+    
+    /**
+     * @return Highest final score, or -1 without games
+     */
+    public int getMax() {
+        for (int score = histogram.length - 1; score >= 0; score--)
+            if (histogram[score] > 0)
+                return score;
+        
+        return -1;
+    }
+    
+    
+    
+    /**
+     * @param fraction Fraction of games in [0, 1]
+     * @return Lowest score that at least that fraction of games did not exceed
+     */
+    public int getPercentile(double fraction) {
+        long target = (long)Math.ceil(fraction * games), seen = 0;
+        
+        for (int score = 0; score < histogram.length; score++) {
+            seen += histogram[score];
+            
+            if (seen >= target && seen > 0)
+                return score;
+        }
+        
+        return -1;
+    }
+    
+    
+    
+    /**
+     * @param score Final score
+     * @return Fraction of games that ended with at least that score
+     */
+    public double getFractionAtLeast(int score) {
+        long count = 0;
+        
+        for (int s = Math.max(0, score); s < histogram.length; s++)
+            count += histogram[s];
+        
+        return (double)count / games;
+    }
+    
+    
+    
+    /**
+     * @return Summary of the score distribution
+     */
+    @Override public String toString() {
+        return String.format("games %d   mean %.2f   sd %.2f   min %d   p10 %d   p50 %d   p90 %d   p99 %d   max %d",
+                games, getMean(), getStandardDeviation(), getMin(), getPercentile(0.1), getPercentile(0.5),
+                getPercentile(0.9), getPercentile(0.99), getMax());
+    }
+}
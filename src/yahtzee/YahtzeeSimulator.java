@@ -0,0 +1,181 @@
+package yahtzee;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+public final class YahtzeeSimulator {
+    private static final long CACHE_BYTES = 64L << 20;
+    private static final int RECORD_FOLD_RECORDS = 1 << 20;
+    
+    private YahtzeeSimulator() {}
+    
+    
+    
+    /**
+     * Play complete games on several threads; each thread has its own dice stream, player and reusable game
+     * 
+     * @param games Number of games
+     * @param threads Number of threads
+     * @param seed Seed of the dice streams, so equal arguments give equal results
+     * @param players Creates one player per thread
+     * @return Aggregate score distribution
+     * @throws InterruptedException If interrupted while waiting for the threads
+     */
+    public static YahtzeeSimulationResult simulate(long games, int threads, long seed, final Supplier<YahtzeePlayer> players)
+            throws InterruptedException {
+        return simulate(games, threads, seed, players, null, null);
+    }
+    
+    
+    
+    /**
+     * Play complete games on several threads, recording every final score
+     * 
+     * @param games Number of games
+     * @param threads Number of threads
+     * @param seed Seed of the dice streams, so equal arguments give equal results
+     * @param players Creates one player per thread
+     * @param recorder Writer queueing each final score, or null
+     * @param name Player name to record scores under
+     * @return Aggregate score distribution
+     * @throws InterruptedException If interrupted while waiting for the threads
+     */
+    public static YahtzeeSimulationResult simulate(long games, int threads, long seed, final Supplier<YahtzeePlayer> players,
+            final YahtzeeHighscoreWriter recorder, final String name) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<YahtzeeSimulationResult>> parts = new ArrayList<>();
+        YahtzeeBulkDice root = new YahtzeeBulkDice(seed);
+        
+        for (int t = 0; t < threads; t++) {
+            final long share = games / threads + (t < games % threads ? 1 : 0);
+            final YahtzeeBulkDice dice = root.split();
+            
+            parts.add(pool.submit(() -> play(share, new YahtzeeGame(dice), players.get(), recorder, name)));
+        }
+        
+        pool.shutdown();
+        
+        // Merge per-thread histograms
+        YahtzeeSimulationResult result = new YahtzeeSimulationResult();
+        
+        try {
+            for (Future<YahtzeeSimulationResult> part : parts)
+                result.merge(part.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        return result;
+    }
+    
+    
+    
+    /**
+     * Play games back to back on one thread
+     * 
+     * @param games Number of games
+     * @param game Game to reuse
+     * @param player Player
+     * @return Score distribution
+     */
+    static YahtzeeSimulationResult play(long games, YahtzeeGame game, YahtzeePlayer player) { return play(games, game, player, null, null); }
+    
+    
+    
+    /**
+     * Play games back to back on one thread, recording every final score
+     * 
+     * @param games Number of games
+     * @param game Game to reuse
+     * @param player Player
+     * @param recorder Writer queueing each final score, or null
+     * @param name Player name to record scores under
+     * @return Score distribution
+     */
+    static YahtzeeSimulationResult play(long games, YahtzeeGame game, YahtzeePlayer player, YahtzeeHighscoreWriter recorder, String name) {
+        YahtzeeSimulationResult result = new YahtzeeSimulationResult();
+        
+        for (long i = 0; i < games; i++) {
+            game.reset();
+            
+            while (!game.isOver())
+                if (!game.play(player.chooseMove(game)))
+                    throw new IllegalStateException("Illegal move by " + player);
+            
+            result.add(game.getScorecard().getTotalScore());
+            
+            if (recorder != null)
+                recorder.record(new YahtzeeScore(name, game.getScorecard().getTotalScore(), System.currentTimeMillis(), 0));
+        }
+        
+        return result;
+    }
+    
+    
+    
+    /**
+     * Run a simulation from the command line; -Dsimulator.record=file records every game in that
+     * highscore journal, with its snapshot next to it
+     * 
+     * @param args [games] [threads] [greedy|optimal|cached|table|target] [target score]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long games = (args.length > 0 ? Long.parseLong(args[0]) : 1000000);
+        int threads = (args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+        String strategy = (args.length > 2 ? args[2] : "greedy");
+        final int target = (args.length > 3 ? Integer.parseInt(args[3]) : YahtzeeDistributionSolver.DEFAULT_MAX_TARGET);
+        
+        Supplier<YahtzeePlayer> players = YahtzeeGreedyPlayer::new;
+        
+        YahtzeeMoveCache cache = null;
+        
+        if (strategy.equals("optimal") || strategy.equals("cached")) {
+            final YahtzeeSolver solver = YahtzeeStrategyFile.loadOrBuild(new File(YahtzeeStrategyFile.DEFAULT_FILE_NAME));
+            final YahtzeeMoveCache shared = (strategy.equals("cached") ? new YahtzeeMoveCache(CACHE_BYTES) : null);
+            
+            players = () -> new YahtzeeSolverPlayer(solver, shared);
+            cache = shared;
+        }
+        else if (strategy.equals("table")) {
+            YahtzeeSolver solver = YahtzeeStrategyFile.loadOrBuild(new File(YahtzeeStrategyFile.DEFAULT_FILE_NAME));
+            final YahtzeeDecisionTable table = YahtzeeDecisionTable.loadOrBuild(new File(YahtzeeDecisionTable.DEFAULT_FILE_NAME), solver);
+            
+            players = () -> new YahtzeeTablePlayer(table);
+        }
+        else if (strategy.equals("target")) {
+            final YahtzeeDistributionSolver solver = YahtzeeDistributionSolver.solve(target, threads);
+            
+            players = () -> new YahtzeeTargetPlayer(solver, target);
+        }
+        
+        String record = System.getProperty("simulator.record");
+        YahtzeeHighscoreWriter recorder = (record == null ? null
+                : new YahtzeeHighscoreWriter(new File(record), new File(record + ".idx"), 0, RECORD_FOLD_RECORDS));
+        
+        long start = System.nanoTime();
+        YahtzeeSimulationResult result = simulate(games, threads, System.nanoTime(), players, recorder, strategy);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        System.out.println(result);
+        System.out.printf("%.4f of games reached %d%n", result.getFractionAtLeast(target), target);
+        System.out.printf("%.0f games per minute%n", games / seconds * 60);
+        
+        if (cache != null)
+            System.out.println(cache);
+        
+        if (recorder != null) {
+            recorder.close();
+            System.out.printf("%.1f s to record every game%n", (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
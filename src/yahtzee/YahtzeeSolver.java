@@ -0,0 +1,736 @@
+package yahtzee;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class YahtzeeSolver {
+    /** Size of the state index space: 13 filled-category bits, 6 lower subtotal bits and the Yahtzee bonus flag */
+    public static final int STATES = 1 << 20;
+    
+    /** Move flag set when the move is a keep mask rather than a category */
+    public static final int KEEP = 0x20;
+    
+    /** Filled-category mask of a finished game */
+    public static final int ALL_FILLED = (1 << YahtzeeRollTable.CATEGORIES) - 1;
+    
+    static final int LOWER_BONUS_THRESHOLD = 63;
+    static final int LOWER_BONUS = 50;
+    static final int YAHTZEE_BONUS = 100;
+    static final int YAHTZEE = 11;
+    static final int REROLLS = 2;
+    
+    private static final int ROLLS = YahtzeeRollTable.ROLLS;
+    private static final int KEEPS = YahtzeeKeepTable.KEEPS;
+    private static final boolean[] REACHABLE = new boolean[64 * 64];
+    private static final int[] YAHTZEE_FACE = new int[ROLLS];
+    private static final int[] OUTCOME = new int[YahtzeeRollTable.CATEGORIES * ROLLS];
+    private static final double[] EXTRA = new double[YahtzeeRollTable.CATEGORIES * ROLLS];
+    static final int[][] LAYERS = new int[YahtzeeRollTable.CATEGORIES + 1][];
+    
+    private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+        @Override protected Workspace initialValue() { return new Workspace(); }
+    };
+    
+    private final YahtzeeStateValues values;
+    
+    
+    
+    static {
+        // Find the lower subtotals that can be reached with each set of filled lower categories
+        REACHABLE[0] = true;
+        
+        for (int mask = 1; mask < 64; mask++)
+            for (int category = 0; category < 6; category++)
+                if ((mask & (1 << category)) != 0)
+                    for (int subtotal = 0; subtotal < 64; subtotal++)
+                        if (REACHABLE[(mask ^ (1 << category)) * 64 + subtotal])
+                            for (int count = 0; count <= 5; count++)
+                                REACHABLE[mask * 64 + Math.min(LOWER_BONUS_THRESHOLD, subtotal + count * (category + 1))] = true;
+        
+        for (int roll = 0; roll < ROLLS; roll++)
+            YAHTZEE_FACE[roll] = (YahtzeeRollTable.eligible(roll, YAHTZEE) ? YahtzeeRollTable.face(roll, 0) : 0);
+        
+        // Group filled-category masks by the number of categories filled
+        int[] sizes = new int[LAYERS.length];
+        
+        for (int filled = 0; filled <= ALL_FILLED; filled++)
+            sizes[Integer.bitCount(filled)]++;
+        
+        for (int layer = 0; layer < LAYERS.length; layer++)
+            LAYERS[layer] = new int[sizes[layer]];
+        
+        for (int filled = ALL_FILLED; filled >= 0; filled--) {
+            int layer = Integer.bitCount(filled);
+            LAYERS[layer][--sizes[layer]] = filled;
+        }
+        
+        // Split each score into the successor it leads to and the points that do not affect the successor
+        for (int category = 0; category < YahtzeeRollTable.CATEGORIES; category++)
+            for (int roll = 0; roll < ROLLS; roll++) {
+                int i = category * ROLLS + roll, points = YahtzeeRollTable.score(roll, category);
+                
+                if (category < 6)
+                    OUTCOME[i] = points / (category + 1);
+                else if (category == YAHTZEE)
+                    OUTCOME[i] = (points == 0 ? 0 : 1);
+                else
+                    EXTRA[i] = points;
+            }
+    }
+    
+    
+    
+    /**
+     * Wrap a solved state value table
+     * 
+     * @param values Expected future score of every state index
+     */
+    public YahtzeeSolver(YahtzeeStateValues values) { this.values = values; }
+    
+    
+    
+    /**
+     * Compute the expected-value-optimal strategy over the full solitaire state space
+     * 
+     * @return Solved strategy
+     */
+    public static YahtzeeSolver solve() {
+        final double[] table = new double[STATES];
+        YahtzeeStateValues values = new ArrayValues(table);
+        Workspace ws = WORKSPACE.get();
+        
+        // Every successor fills one more category, so higher masks are always solved first
+        for (int filled = ALL_FILLED - 1; filled >= 0; filled--)
+            solveMask(filled, table, values, ws);
+        
+        return new YahtzeeSolver(values);
+    }
+    
+    
+    
+    /**
+     * Compute the same table as solve() on a fork-join pool, one layer of filled-category
+     * counts at a time with the states of each layer spread across the pool's threads
+     * 
+     * @param pool Pool to run on
+     * @return Solved strategy, bit-identical to solve()
+     */
+    public static YahtzeeSolver solve(ForkJoinPool pool) {
+        double[] table = new double[STATES];
+        YahtzeeStateValues values = new ArrayValues(table);
+        
+        // States with n categories filled only depend on states with n + 1 filled
+        for (int layer = YahtzeeRollTable.CATEGORIES - 1; layer >= 0; layer--)
+            pool.invoke(new LayerTask(LAYERS[layer], 0, LAYERS[layer].length, table, values));
+        
+        return new YahtzeeSolver(values);
+    }
+    
+    
+    
+    /**
+     * Compute the table on a dedicated pool
+     * 
+     * @param threads Number of worker threads
+     * @return Solved strategy, bit-identical to solve()
+     */
+    public static YahtzeeSolver solve(int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        
+        try {
+            return solve(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    
+    
+    /**
+     * Build a solver that only solves states as queries reach them, remembering them for
+     * later turns and games
+     * 
+     * @return Solver backed by a YahtzeeLazyValues table
+     */
+    public static YahtzeeSolver lazy() { return new YahtzeeSolver(new YahtzeeLazyValues()); }
+    
+    
+    
+    /**
+     * Solve every reachable state with one filled-category mask
+     * 
+     * @param filled Filled-category mask
+     * @param table Destination for state values
+     * @param values View of the same table for successor lookups
+     * @param ws Scratch buffers
+     */
+    static void solveMask(int filled, double[] table, YahtzeeStateValues values, Workspace ws) {
+        for (int subtotal = 0; subtotal < 64; subtotal++)
+            for (int flag = 0; flag <= ((filled & (1 << YAHTZEE)) != 0 ? 1 : 0); flag++) {
+                int state = state(filled, subtotal, flag == 1);
+                
+                if (isReachable(state))
+                    table[state] = evaluate(state, values, ws);
+            }
+    }
+    
+    
+    
+    /**
+     * @return Solved state values
+     */
+    public YahtzeeStateValues getStateValues() { return values; }
+    
+    
+    
+    /**
+     * Build a state index
+     * 
+     * @param filled Bitmask of filled categories
+     * @param lowerSubtotal Sum of the aces through sixes categories, capped at 63
+     * @param yahtzeeBonus Whether a Yahtzee has been scored for 50, making further Yahtzees worth a bonus
+     * @return State index
+     */
+    public static int state(int filled, int lowerSubtotal, boolean yahtzeeBonus) {
+        return (filled << 7) | (Math.min(lowerSubtotal, LOWER_BONUS_THRESHOLD) << 1) | (yahtzeeBonus ? 1 : 0);
+    }
+    
+    
+    
+    /**
+     * Get the state index of a scorecard
+     * 
+     * @param scorecard Scorecard
+     * @return State index
+     */
+    public static int stateOf(YahtzeeScorecard scorecard) {
+        int filled = 0;
+        
+        for (int category = 0; category < YahtzeeRollTable.CATEGORIES; category++)
+            if (scorecard.getCategoryScore(category) != -1)
+                filled |= 1 << category;
+        
+        return state(filled, scorecard.getLowerScore(), scorecard.getCategoryScore(YAHTZEE) == 50);
+    }
+    
+    
+    
+    /**
+     * @param state State index
+     * @return Bitmask of filled categories
+     */
+    public static int filled(int state) { return state >>> 7; }
+    
+    
+    
+    /**
+     * @param state State index
+     * @return Lower subtotal, capped at 63
+     */
+    public static int lowerSubtotal(int state) { return (state >>> 1) & 63; }
+    
+    
+    
+    /**
+     * @param state State index
+     * @return Whether further Yahtzees earn a bonus
+     */
+    public static boolean yahtzeeBonus(int state) { return (state & 1) != 0; }
+    
+    
+    
+    /**
+     * Check whether a state can occur in a game played by the rules
+     * 
+     * @param state State index
+     * @return Reachability
+     */
+    public static boolean isReachable(int state) {
+        int filled = filled(state);
+        
+        if (yahtzeeBonus(state) && (filled & (1 << YAHTZEE)) == 0)
+            return false;
+        
+        return REACHABLE[(filled & 63) * 64 + lowerSubtotal(state)];
+    }
+    
+    
+    
+    /**
+     * @param move Move returned by getBestMove
+     * @return Whether the move is a keep mask rather than a category
+     */
+    public static boolean isKeep(int move) { return (move & KEEP) != 0; }
+    
+    
+    
+    /**
+     * @param move Keep move returned by getBestMove
+     * @return Mask over roll positions of the dice to keep
+     */
+    public static int keepMask(int move) { return move & (KEEP - 1); }
+    
+    
+    
+    /**
+     * Get the expected score still to come from a state at the start of a turn
+     * 
+     * @param state State index
+     * @return Expected future score
+     */
+    public double getStateValue(int state) { return values.getValue(state); }
+    
+    
+    
+    /**
+     * Get the expected final score of a game
+     * 
+     * @param scorecard Scorecard at the start of a turn
+     * @return Expected final score under optimal play
+     */
+    public double getExpectedScore(YahtzeeScorecard scorecard) {
+        return scorecard.getTotalScore() + values.getValue(stateOf(scorecard));
+    }
+    
+    
+    
+    /**
+     * Get the optimal move for a roll
+     * 
+     * @param state State index
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @return Category index, or KEEP with a mask over roll positions of the dice to keep
+     */
+    public int getBestMove(int state, int[] roll, int rerolls) {
+        int move = getBestSortedMove(state, YahtzeeRollTable.indexOf(roll), rerolls);
+        
+        if (isKeep(move))
+            return KEEP | YahtzeeKeepTable.toPositionMask(roll, keepMask(move));
+        
+        return move;
+    }
+    
+    
+    
+    /**
+     * Get the optimal move for a roll and its expected value, evaluating the turn once
+     * 
+     * @param state State index
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @param expected Destination for the expected future score, as getExpectedValue returns it, in
+     *                 element 0
+     * @return Category index, or KEEP with a mask over roll positions of the dice to keep
+     */
+    public int getBestMove(int state, int[] roll, int rerolls, double[] expected) {
+        Workspace ws = WORKSPACE.get();
+        int index = YahtzeeRollTable.indexOf(roll);
+        
+        evaluate(state, values, ws);
+        
+        int move = bestMove(state, values, ws, index, rerolls);
+        expected[0] = ws.stage[rerolls][index] - yahtzeeBonusFor(state, index);
+        
+        if (isKeep(move))
+            return KEEP | YahtzeeKeepTable.toPositionMask(roll, keepMask(move));
+        
+        return move;
+    }
+    
+    
+    
+    /**
+     * Get the optimal move for a roll in sorted order
+     * 
+     * @param state State index
+     * @param roll Roll index
+     * @param rerolls Rerolls remaining
+     * @return Category index, or KEEP with a mask over the sorted dice to keep
+     */
+    public int getBestSortedMove(int state, int roll, int rerolls) {
+        Workspace ws = WORKSPACE.get();
+        
+        evaluate(state, values, ws);
+        
+        return bestMove(state, values, ws, roll, rerolls);
+    }
+    
+    
+    
+    /**
+     * Get the expected score still to come from a roll under optimal play, not counting
+     * the Yahtzee bonus already awarded for the roll itself
+     * 
+     * @param state State index
+     * @param roll Dice values
+     * @param rerolls Rerolls remaining
+     * @return Expected future score
+     */
+    public double getExpectedValue(int state, int[] roll, int rerolls) {
+        Workspace ws = WORKSPACE.get();
+        int index = YahtzeeRollTable.indexOf(roll);
+        
+        evaluate(state, values, ws);
+        
+        return ws.stage[rerolls][index] - yahtzeeBonusFor(state, index);
+    }
+    
+    
+    
+    /**
+     * Pick the optimal move in a state whose turn has been evaluated into a workspace
+     * 
+     * @param state State index
+     * @param values Expected future score of successor states
+     * @param ws Workspace filled by evaluate
+     * @param roll Roll index
+     * @param rerolls Rerolls remaining
+     * @return Category index, or KEEP with a mask over the sorted dice to keep
+     */
+    static int bestMove(int state, YahtzeeStateValues values, Workspace ws, int roll, int rerolls) {
+        return bestKeep(ws, roll, rerolls, bestCategory(state, roll, values));
+    }
+    
+    
+    
+    /**
+     * Pick between scoring a roll in its best category and the best keep
+     * 
+     * @param ws Workspace filled by evaluate
+     * @param roll Roll index
+     * @param rerolls Rerolls remaining
+     * @param category Best category for the roll
+     * @return Category, or KEEP with a mask over the sorted dice to keep
+     */
+    static int bestKeep(Workspace ws, int roll, int rerolls, int category) {
+        if (rerolls == 0)
+            return category;
+        
+        double[] keeps = ws.keeps[rerolls - 1];
+        double best = ws.score[roll];
+        int move = category;
+        
+        for (int i = YahtzeeKeepTable.subkeepStart(roll); i < YahtzeeKeepTable.subkeepEnd(roll); i++)
+            if (keeps[YahtzeeKeepTable.subkeep(i)] > best) {
+                best = keeps[YahtzeeKeepTable.subkeep(i)];
+                move = KEEP | YahtzeeKeepTable.subkeepMask(i);
+            }
+        
+        return move;
+    }
+    
+    
+    
+    /**
+     * Pick the optimal category for a final roll
+     * 
+     * @param state State index
+     * @param roll Roll index
+     * @param values Expected future score of successor states
+     * @return Category index
+     */
+    static int bestCategory(int state, int roll, YahtzeeStateValues values) {
+        int filled = filled(state), forced = forcedCategory(state, roll);
+        
+        if (forced != -1)
+            return forced;
+        
+        double best = Double.NEGATIVE_INFINITY;
+        int category = -1;
+        
+        for (int c = 0; c < YahtzeeRollTable.CATEGORIES; c++)
+            if ((filled & (1 << c)) == 0) {
+                int points = YahtzeeRollTable.score(roll, c);
+                double value = scoreValue(state, c, points, values);
+                
+                if (value > best) {
+                    best = value;
+                    category = c;
+                }
+            }
+        
+        return category;
+    }
+    
+    
+    
+    /**
+     * Evaluate one turn of a state given the values of every state after it
+     * 
+     * @param state State index
+     * @param values Expected future score of successor states
+     * @param ws Scratch buffers, left holding the turn's roll and keep values
+     * @return Expected future score of the state
+     */
+    static double evaluate(int state, YahtzeeStateValues values, Workspace ws) {
+        if (filled(state) == ALL_FILLED)
+            return 0;
+        
+        // Best category for every final roll
+        double[] score = ws.score;
+        
+        scoreRolls(state, values, score, ws.outcomes);
+        
+        // No rerolls left
+        double[] stage = ws.stage[0];
+        
+        for (int roll = 0; roll < ROLLS; roll++)
+            stage[roll] = score[roll] + yahtzeeBonusFor(state, roll);
+        
+        // Each reroll takes the better of scoring now and the best keep
+        for (int rerolls = 1; rerolls <= REROLLS; rerolls++) {
+            double[] keeps = ws.keeps[rerolls - 1];
+            double[] previous = ws.stage[rerolls - 1];
+            
+            expectKeeps(previous, keeps);
+            bestSubkeeps(keeps, ws.best);
+            
+            stage = ws.stage[rerolls];
+            
+            for (int roll = 0; roll < ROLLS; roll++) {
+                double best = ws.best[YahtzeeKeepTable.ofRoll(roll)];
+                
+                stage[roll] = (score[roll] > best ? score[roll] : best) + yahtzeeBonusFor(state, roll);
+            }
+        }
+        
+        // Initial roll
+        double expected = 0;
+        
+        for (int roll = 0; roll < ROLLS; roll++)
+            expected += YahtzeeRollTable.probability(roll) * stage[roll];
+        
+        return expected;
+    }
+    
+    
+    
+    /**
+     * Find the value of scoring every final roll in its best open category
+     * 
+     * @param state State index, not all filled
+     * @param values Expected future score of successor states
+     * @param score Destination for the value of every roll, not counting the Yahtzee bonus
+     * @param outcomes Scratch buffer of six values
+     */
+    static void scoreRolls(int state, YahtzeeStateValues values, double[] score, double[] outcomes) {
+        int filled = filled(state);
+        
+        java.util.Arrays.fill(score, Double.NEGATIVE_INFINITY);
+        
+        for (int c = 0; c < YahtzeeRollTable.CATEGORIES; c++)
+            if ((filled & (1 << c)) == 0) {
+                // Successor values only depend on the points scored, so look each one up once
+                if (c < 6) {
+                    for (int count = 0; count <= 5; count++)
+                        outcomes[count] = scoreValue(state, c, count * (c + 1), values);
+                }
+                else if (c == YAHTZEE) {
+                    outcomes[0] = scoreValue(state, c, 0, values);
+                    outcomes[1] = scoreValue(state, c, 50, values);
+                }
+                else
+                    outcomes[0] = scoreValue(state, c, 0, values);
+                
+                for (int roll = 0, i = c * ROLLS; roll < ROLLS; roll++, i++) {
+                    double value = EXTRA[i] + outcomes[OUTCOME[i]];
+                    
+                    if (value > score[roll])
+                        score[roll] = value;
+                }
+            }
+        
+        if (yahtzeeBonus(state))
+            for (int roll = 0; roll < ROLLS; roll++) {
+                int forced = forcedCategory(state, roll);
+                
+                if (forced != -1)
+                    score[roll] = scoreValue(state, forced, YahtzeeRollTable.score(roll, forced), values);
+            }
+    }
+    
+    
+    
+    /**
+     * Compute the expected value of every keep from the values of the rolls it can lead to
+     * 
+     * @param rolls Value of every roll
+     * @param keeps Destination for the value of every keep
+     */
+    static void expectKeeps(double[] rolls, double[] keeps) {
+        int[] add = YahtzeeKeepTable.ADD, rollIndex = YahtzeeKeepTable.ROLL_INDEX;
+        
+        for (int keep = YahtzeeKeepTable.PARTIAL_KEEPS; keep < KEEPS; keep++)
+            keeps[keep] = rolls[rollIndex[keep]];
+        
+        // Larger keeps come later, so walking backwards sees every keep's successors first
+        for (int keep = YahtzeeKeepTable.PARTIAL_KEEPS - 1, i = keep * 6; keep >= 0; keep--, i -= 6)
+            keeps[keep] = (keeps[add[i]] + keeps[add[i+1]] + keeps[add[i+2]] + keeps[add[i+3]] + keeps[add[i+4]] + keeps[add[i+5]]) * (1.0 / 6);
+    }
+    
+    
+    
+    /**
+     * Find the best keep contained in every keep
+     * 
+     * @param keeps Value of every keep
+     * @param best Destination for the best value over each keep's sub-multisets
+     */
+    static void bestSubkeeps(double[] keeps, double[] best) {
+        int[] start = YahtzeeKeepTable.SMALLER_START, smaller = YahtzeeKeepTable.SMALLER;
+        
+        // Smaller keeps come first, so every keep's one-die-smaller subkeeps are already done
+        for (int keep = 0; keep < KEEPS; keep++) {
+            double value = keeps[keep];
+            
+            for (int i = start[keep]; i < start[keep + 1]; i++)
+                if (best[smaller[i]] > value)
+                    value = best[smaller[i]];
+            
+            best[keep] = value;
+        }
+    }
+    
+    
+    
+    /**
+     * Get the immediate score plus expected future score of scoring points in a category
+     * 
+     * @param state State index
+     * @param category Open category
+     * @param points Points the roll scores in the category
+     * @param values Expected future score of successor states
+     * @return Value of the choice
+     */
+    static double scoreValue(int state, int category, int points, YahtzeeStateValues values) {
+        return points + lowerBonusFor(state, category, points) + values.getValue(successor(state, category, points));
+    }
+    
+    
+    
+    /**
+     * @param state State index
+     * @param category Open category
+     * @param points Points scored in the category
+     * @return State at the start of the next turn
+     */
+    static int successor(int state, int category, int points) {
+        int subtotal = lowerSubtotal(state);
+        boolean flag = yahtzeeBonus(state);
+        
+        if (category < 6)
+            subtotal = Math.min(LOWER_BONUS_THRESHOLD, subtotal + points);
+        else if (category == YAHTZEE)
+            flag = (points != 0);
+        
+        return state(filled(state) | (1 << category), subtotal, flag);
+    }
+    
+    
+    
+    /**
+     * @param state State index
+     * @param category Open category
+     * @param points Points scored in the category
+     * @return Lower section bonus awarded for them
+     */
+    static int lowerBonusFor(int state, int category, int points) {
+        int subtotal = lowerSubtotal(state);
+        
+        return (category < 6 && subtotal < LOWER_BONUS_THRESHOLD && subtotal + points >= LOWER_BONUS_THRESHOLD ? LOWER_BONUS : 0);
+    }
+    
+    
+    
+    /**
+     * A bonus Yahtzee must go in its matching open lower category
+     * 
+     * @param state State index
+     * @param roll Roll index
+     * @return The category the roll must be scored in, or -1 if any open category will do
+     */
+    static int forcedCategory(int state, int roll) {
+        int face = YAHTZEE_FACE[roll];
+        
+        if (yahtzeeBonus(state) && face != 0 && (filled(state) & (1 << (face - 1))) == 0)
+            return face - 1;
+        
+        return -1;
+    }
+    
+    
+    
+    /**
+     * @param state State index
+     * @param roll Roll index
+     * @return Bonus awarded when the roll comes up
+     */
+    static int yahtzeeBonusFor(int state, int roll) {
+        return (yahtzeeBonus(state) && YAHTZEE_FACE[roll] != 0 ? YAHTZEE_BONUS : 0);
+    }
+    
+    
+    
+    /**
+     * Scratch buffers for evaluating one turn
+     */
+    static final class Workspace {
+        final double[] score = new double[ROLLS];
+        final double[] outcomes = new double[6];
+        final double[][] stage = new double[REROLLS + 1][ROLLS];
+        final double[][] keeps = new double[REROLLS][KEEPS];
+        final double[] best = new double[KEEPS];
+    }
+    
+    
+    
+    /**
+     * State values held in a heap array
+     */
+    static final class ArrayValues implements YahtzeeStateValues {
+        final double[] table;
+        
+        ArrayValues(double[] table) { this.table = table; }
+        
+        @Override public double getValue(int state) { return table[state]; }
+    }
+    
+    
+    
+    /**
+     * Solves a range of one layer's masks, splitting until the range is small
+     */
+    private static final class LayerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_MASKS = 8;
+        
+        private final int[] masks;
+        private final int from, to;
+        private final double[] table;
+        private final YahtzeeStateValues values;
+        
+        LayerTask(int[] masks, int from, int to, double[] table, YahtzeeStateValues values) {
+            this.masks = masks;
+            this.from = from;
+            this.to = to;
+            this.table = table;
+            this.values = values;
+        }
+        
+        @Override protected void compute() {
+            if (to - from <= LEAF_MASKS) {
+                // Each worker thread keeps its own workspace across tasks and layers
+                Workspace ws = WORKSPACE.get();
+                
+                for (int i = from; i < to; i++)
+                    solveMask(masks[i], table, values, ws);
+                
+                return;
+            }
+            
+            int mid = (from + to) >>> 1;
+            invokeAll(new LayerTask(masks, from, mid, table, values), new LayerTask(masks, mid, to, table, values));
+        }
+    }
+}
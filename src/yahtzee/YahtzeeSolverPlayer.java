@@ -0,0 +1,55 @@
+package yahtzee;
+
+public class YahtzeeSolverPlayer implements YahtzeePlayer {
+    private final YahtzeeSolver solver;
+    private final YahtzeeMoveCache cache;
+    
+    
+    
+    /**
+     * Play the expected-value-optimal strategy
+     * 
+     * @param solver Solved strategy
+     */
+    public YahtzeeSolverPlayer(YahtzeeSolver solver) { this(solver, null); }
+    
+    
+    
+    /**
+     * Play the expected-value-optimal strategy, remembering moves in a cache that may be shared
+     * with other players
+     * 
+     * @param solver Solved strategy
+     * @param cache Move cache, or null
+     */
+    public YahtzeeSolverPlayer(YahtzeeSolver solver, YahtzeeMoveCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    }
+    
+    
+    
+    /**
+     * @param game Game, not over
+     * @return Optimal move
+     */
+    @Override public int chooseMove(YahtzeeGame game) {
+        if (cache == null)
+            return solver.getBestMove(game.getState(), game.getRoll(), game.getRerolls());
+        
+        // Moves are cached in sorted order so every ordering of the same dice shares an entry
+        int state = game.getState(), roll = YahtzeeRollTable.indexOf(game.getRoll());
+        long key = YahtzeeMoveCache.key(state, roll, game.getRerolls());
+        int move = (int)cache.get(key, -1);
+        
+        if (move == -1) {
+            move = solver.getBestSortedMove(state, roll, game.getRerolls());
+            cache.put(key, move);
+        }
+        
+        if (YahtzeeSolver.isKeep(move))
+            return YahtzeeSolver.KEEP | YahtzeeKeepTable.toPositionMask(game.getRoll(), YahtzeeSolver.keepMask(move));
+        
+        return move;
+    }
+}
@@ -0,0 +1,46 @@
+package yahtzee;
+
+import java.util.SplittableRandom;
+
+public class YahtzeeSplittableDice implements YahtzeeDiceSource {
+    private SplittableRandom random;
+    
+    
+    
+    /**
+     * Dice seeded for reproducible games
+     * 
+     * @param seed Seed
+     */
+    public YahtzeeSplittableDice(long seed) { this(new SplittableRandom(seed)); }
+    
+    
+    
+    /**
+     * @param random Generator, owned by this source from now on
+     */
+    public YahtzeeSplittableDice(SplittableRandom random) { this.random = random; }
+    
+    
+    
+    /**
+     * Restart the dice from a seed, e.g. for each new game
+     * 
+     * @param seed Seed
+     */
+    public void setSeed(long seed) { random = new SplittableRandom(seed); }
+    
+    
+    
+    /**
+     * @return Independent source for another thread
+     */
+    public YahtzeeSplittableDice split() { return new YahtzeeSplittableDice(random.split()); }
+    
+    
+    
+    /**
+     * @return Face of one die, 1 to 6
+     */
+    @Override public int roll() { return random.nextInt(YahtzeeGame.DICE_FACES) + 1; }
+}
@@ -0,0 +1,11 @@
+package yahtzee;
+
+public interface YahtzeeStateValues {
+    /**
+     * Get the expected score still to come from a state at the start of a turn
+     * 
+     * @param state State index, see YahtzeeSolver.state
+     * @return Expected future score
+     */
+    double getValue(int state);
+}
@@ -0,0 +1,158 @@
+package yahtzee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.zip.CRC32;
+
+public final class YahtzeeStrategyFile {
+    /** Default location of the strategy table */
+    public static final String DEFAULT_FILE_NAME = "strategy.dat";
+    
+    /** File magic, "YHTZ" */
+    static final int MAGIC = 0x5948545A;
+    
+    /** Format version; bump whenever the header or payload layout changes */
+    static final int VERSION = 1;
+    
+    /** Rules revision; bump whenever the solver's rules or state indexing change */
+    static final int RULES = 1;
+    
+    /** Header size, payload starts here */
+    static final int HEADER_BYTES = 64;
+    
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final long PAYLOAD_BYTES = (long)YahtzeeSolver.STATES * 8;
+    
+    
+    
+    private YahtzeeStrategyFile() {}
+    
+    
+    
+    /**
+     * Map a strategy table, solving and writing it first if it is missing, stale or corrupt
+     * 
+     * @param file Strategy table file
+     * @return Solver backed by the mapped table
+     * @throws IOException If the table cannot be written or mapped
+     */
+    public static YahtzeeSolver loadOrBuild(File file) throws IOException {
+        try {
+            return load(file, true);
+        } catch (IOException e) {
+            write(file, YahtzeeSolver.solve(Runtime.getRuntime().availableProcessors()));
+            return load(file, false);
+        }
+    }
+    
+    
+    
+    /**
+     * Map a strategy table; pages are read lazily and shared between processes mapping the same file
+     * 
+     * @param file Strategy table file
+     * @param verify Whether to check the payload checksum, which reads the whole table once
+     * @return Solver backed by the mapped table
+     * @throws IOException If the file is missing, from another version or rules revision, or fails its checksum
+     */
+    public static YahtzeeSolver load(File file, boolean verify) throws IOException {
+        MappedByteBuffer map;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() != HEADER_BYTES + PAYLOAD_BYTES)
+                throw new IOException("Strategy table " + file + " has the wrong size");
+            
+            // The mapping stays valid after the channel is closed
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        map.order(ORDER);
+        
+        if (map.getInt(0) != MAGIC)
+            throw new IOException("Not a strategy table: " + file);
+        if (map.getInt(4) != VERSION || map.getInt(8) != RULES || map.getInt(12) != YahtzeeSolver.STATES)
+            throw new IOException("Stale strategy table: " + file);
+        
+        map.position(HEADER_BYTES);
+        ByteBuffer payload = map.slice().order(ORDER);
+        
+        if (verify && checksum(payload) != map.getLong(16))
+            throw new IOException("Corrupt strategy table: " + file);
+        
+        return new YahtzeeSolver(new MappedValues(payload.asDoubleBuffer()));
+    }
+    
+    
+    
+    /**
+     * Write a solved table, replacing any existing file atomically
+     * 
+     * @param file Strategy table file
+     * @param solver Solved strategy
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(File file, YahtzeeSolver solver) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocateDirect((int)PAYLOAD_BYTES).order(ORDER);
+        YahtzeeStateValues values = solver.getStateValues();
+        
+        for (int state = 0; state < YahtzeeSolver.STATES; state++)
+            payload.putDouble(values.getValue(state));
+        
+        payload.flip();
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RULES).putInt(YahtzeeSolver.STATES).putLong(checksum(payload));
+        header.clear();
+        
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            
+            while (header.hasRemaining())
+                channel.write(header);
+            while (payload.hasRemaining())
+                channel.write(payload);
+            
+            channel.force(true);
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    
+    
+    /**
+     * @param payload Table payload, position unchanged
+     * @return CRC-32 of the payload
+     */
+    private static long checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        
+        return crc.getValue();
+    }
+    
+    
+    
+    /**
+     * State values read straight from a mapped file
+     */
+    private static final class MappedValues implements YahtzeeStateValues {
+        private final DoubleBuffer table;
+        
+        MappedValues(DoubleBuffer table) { this.table = table; }
+        
+        @Override public double getValue(int state) { return table.get(state); }
+    }
+}
@@ -0,0 +1,24 @@
+package yahtzee;
+
+public class YahtzeeTablePlayer implements YahtzeePlayer {
+    private final YahtzeeDecisionTable table;
+    
+    
+    
+    /**
+     * Play the expected-value-optimal strategy from a compiled decision table
+     * 
+     * @param table Decision table
+     */
+    public YahtzeeTablePlayer(YahtzeeDecisionTable table) { this.table = table; }
+    
+    
+    
+    /**
+     * @param game Game, not over
+     * @return Optimal move
+     */
+    @Override public int chooseMove(YahtzeeGame game) {
+        return table.getMove(game.getState(), game.getRoll(), game.getRerolls());
+    }
+}
@@ -0,0 +1,33 @@
+package yahtzee;
+
+public class YahtzeeTargetPlayer implements YahtzeePlayer {
+    private final YahtzeeDistributionSolver solver;
+    private final int target;
+    
+    
+    
+    /**
+     * Play to maximize the probability of finishing with at least a target score
+     * 
+     * @param solver Solved distributions
+     * @param target Final score to reach, at most the solver's highest target
+     */
+    public YahtzeeTargetPlayer(YahtzeeDistributionSolver solver, int target) {
+        if (target > solver.getMaxTarget())
+            throw new IllegalArgumentException("Target " + target + " exceeds the highest target " + solver.getMaxTarget());
+        
+        this.solver = solver;
+        this.target = target;
+    }
+    
+    
+    
+    /**
+     * @param game Game, not over
+     * @return Move most likely to reach the target; any legal move once it is reached
+     */
+    @Override public int chooseMove(YahtzeeGame game) {
+        int need = target - game.getScorecard().getTotalScore();
+        return solver.getBestMove(game.getState(), game.getRoll(), game.getRerolls(), need);
+    }
+}
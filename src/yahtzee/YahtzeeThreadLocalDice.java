@@ -0,0 +1,17 @@
+package yahtzee;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class YahtzeeThreadLocalDice implements YahtzeeDiceSource {
+    /** Shared instance; each thread rolls from its own ThreadLocalRandom */
+    public static final YahtzeeThreadLocalDice INSTANCE = new YahtzeeThreadLocalDice();
+    
+    private YahtzeeThreadLocalDice() {}
+    
+    
+    
+    /**
+     * @return Face of one die, 1 to 6
+     */
+    @Override public int roll() { return ThreadLocalRandom.current().nextInt(1, YahtzeeGame.DICE_FACES + 1); }
+}